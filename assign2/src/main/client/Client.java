@@ -32,6 +32,11 @@ public class Client {
         //show an authentication sequence
         receivedMessage = getNextMessage(socketChannel, buffer);
         while (Helper.parseMessageType(receivedMessage) != MessageType.AUTHENTICATION_SUCCESSFUL) {
+            if (Helper.parseMessageType(receivedMessage) == MessageType.KEEP_ALIVE) {
+                sendMessageToServer(socketChannel, buffer, MessageType.KEEP_ALIVE.toHeader());
+                receivedMessage = getNextMessage(socketChannel, buffer);
+                continue;
+            }
             System.out.println(Helper.parseMessage(receivedMessage) + "\n");
             if(Helper.parseMessageType(receivedMessage) == MessageType.INFO){
                 receivedMessage = getNextMessage(socketChannel, buffer);
@@ -72,8 +77,7 @@ public class Client {
                 case GAME_MODE_REQUEST:
                     System.out.println(Helper.parseMessage(receivedMessage) + "\n");
                     System.out.print("Enter your game mode: ");
-                    message = GAME_MODE_RESPONSE.toHeader();
-                    message += scanner.nextLine();
+                    message = gameModeMessage(scanner.nextLine());
                     sendMessageToServer(socketChannel, buffer, message);
                     break;
                 case GAME_GUESS_REQUEST:
@@ -90,6 +94,10 @@ public class Client {
                 case INFO, GAME_END:
                     System.out.println(Helper.parseMessage(receivedMessage) + "\n");
                     break;
+                case KEEP_ALIVE:
+                    // the server drops connections it hears nothing from, echo its pings
+                    sendMessageToServer(socketChannel, buffer, MessageType.KEEP_ALIVE.toHeader());
+                    break;
                 default:
                     break;
 
@@ -99,6 +107,18 @@ public class Client {
         socketChannel.close();
     }
 
+    // "top [n]" and "rank" query the leaderboard, anything else is the game mode
+    private static String gameModeMessage(String input) {
+        String[] words = input.trim().split("\\s+");
+        if (words[0].equalsIgnoreCase("top")) {
+            return MessageType.LEADERBOARD_REQUEST.toHeader() + (words.length > 1 ? words[1] : "");
+        }
+        if (words[0].equalsIgnoreCase("rank")) {
+            return MessageType.RANK_REQUEST.toHeader();
+        }
+        return GAME_MODE_RESPONSE.toHeader() + input;
+    }
+
     private static String getNextMessage(SocketChannel socketChannel, ByteBuffer buffer) throws IOException {
         String receivedMessage;
         if (messageQueue.isEmpty()) {
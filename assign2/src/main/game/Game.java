@@ -2,6 +2,7 @@ package main.game;
 
 import main.server.Server;
 import main.utils.ConcurrentList;
+import main.utils.HashedWheelTimer;
 import main.utils.MessageType;
 
 import java.util.*;
@@ -9,11 +10,17 @@ import java.util.*;
 import main.utils.ConcurrentHashMap;
 
 import java.util.concurrent.*;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
-public class Game implements Runnable {
+// A game is a round state machine with no thread of its own.
+// It is advanced by guess events from the reactors, by guess deadlines from the timing wheel
+// and by disconnections, each handled under the game's monitor without ever blocking.
+public class Game {
+    private enum State {
+        CREATED,
+        AWAITING_GUESSES,
+        OVER
+    }
+
     private final int id;
     private final boolean ranked;
     private final int secretNumber;
@@ -22,19 +29,17 @@ public class Game implements Runnable {
     private static final int MIN_RANGE = 1;
     private final int MAX_ROUNDS = 3;
     private int GAME_ROUND;
+    private State state = State.CREATED;
     private final ConcurrentHashMap<Player, Integer> playerGuesses = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Player, Lock> playerLocks = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Player, Condition> playerConditions = new ConcurrentHashMap<>();
-
-    private final ExecutorService threadPoolPlayers;
+    private final ConcurrentHashMap<Player, HashedWheelTimer.Timeout> guessDeadlines = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Player, Boolean> timedOut = new ConcurrentHashMap<>();
 
 
-    public Game(int id, ConcurrentList<Player> players, boolean ranked, ExecutorService executorService) {
+    public Game(int id, ConcurrentList<Player> players, boolean ranked) {
         this.id = id;
         this.ranked = ranked;
         this.secretNumber = generateSecretNumber();
         this.players = players;
-        this.threadPoolPlayers = executorService;
         this.GAME_ROUND = 1;
     }
 
@@ -54,12 +59,43 @@ public class Game implements Runnable {
         return players;
     }
 
-    public boolean isOver() {
-        return allPlayersGuessed();
+    public synchronized boolean isOver() {
+        return state == State.OVER;
     }
 
+    public void start() {
+        boolean over;
+        synchronized (this) {
+            if (state != State.CREATED) {
+                return;
+            }
+            over = players.size() == 0 ? finish() : startRound();
+        }
+        if (over) {
+            Server.endGame(this);
+        }
+    }
+
+    // guess event, dispatched by the server once the reactor has parsed it
     public void setPlayerGuess(Player player, int guess) {
-        playerGuesses.put(player, guess);
+        boolean over;
+        synchronized (this) {
+            if (state != State.AWAITING_GUESSES || !player.isInGame() || playerGuessed(player)) {
+                return;
+            }
+            cancelDeadline(player);
+            System.out.println("Player " + player.getUsername() + " has guessed.");
+            guess(player, guess);
+
+            if (!allPlayersGuessed()) {
+                Server.sendMessageToPlayer(player, MessageType.INFO.toHeader() + "Waiting for other players to guess...");
+                return;
+            }
+            over = endRound();
+        }
+        if (over) {
+            Server.endGame(this);
+        }
     }
 
     public void addPlayer(Player player) {
@@ -80,13 +116,49 @@ public class Game implements Runnable {
     }
 
     public boolean playerGuessed(Player player) {
-        return !player.isInGame() || playerGuesses.containsKey(player);
+        return !player.isInGame() || playerGuesses.containsKey(player) || timedOut.containsKey(player);
+    }
+
+    // a player who lets the round's deadline pass forfeits the round instead of blocking the game
+    private void scheduleGuessDeadlines() {
+        int round = GAME_ROUND;
+        for (Player player : players) {
+            HashedWheelTimer.Timeout deadline = Server.scheduleForPlayer(player, () -> Server.dispatchGameEvent(() -> onGuessTimeout(player, round)),
+                    Server.getGuessTimeoutSeconds(), TimeUnit.SECONDS);
+            if (deadline != null) {
+                guessDeadlines.put(player, deadline);
+            }
+        }
+    }
+
+    // deadline event from the timing wheel
+    private void onGuessTimeout(Player player, int round) {
+        boolean over;
+        synchronized (this) {
+            if (state != State.AWAITING_GUESSES || round != GAME_ROUND || playerGuessed(player)) {
+                return;
+            }
+            timedOut.put(player, true);
+            guessDeadlines.remove(player);
+            Server.sendMessageToPlayer(player, MessageType.INFO.toHeader() + "Time is up, you did not guess this round.");
+            if (!allPlayersGuessed()) {
+                return;
+            }
+            over = endRound();
+        }
+        if (over) {
+            Server.endGame(this);
+        }
     }
 
     public void guess(Player player, int guess) {
         playerGuesses.put(player, guess);
         int distance = getDistance(player);
-        if(ranked) player.updateScore(distance != 0 ? MAX_RANGE / 2 - distance : 100);
+        if(ranked) {
+            player.updateScore(distance != 0 ? MAX_RANGE / 2 - distance : 100);
+            // keeps the cached profile current, the store writes it behind
+            Server.updatePlayerEntry(player);
+        }
     }
 
     public int getDistance(Player player) {
@@ -101,115 +173,80 @@ public class Game implements Runnable {
         return MIN_RANGE;
     }
 
-    @Override
-    public void run() {
-
-        while(GAME_ROUND <= MAX_ROUNDS){
-            String message = "";
-            if(GAME_ROUND == 1) message = "Game started!";
-            System.out.println("Game " + getId() + " Round " + GAME_ROUND);
-            Server.sendMessageToPlayers(this, MessageType.INFO.toHeader() + "Round " + GAME_ROUND);
-            Server.sendMessageToPlayers(this, MessageType.GAME_GUESS_REQUEST.toHeader() + message + " Guess a number between " + getMinRange() + " and " + getMaxRange());
-
-            List<Callable<Void>> tasks = new ArrayList<>();
-            for (Player player : players) {
-                if (player == null || !player.isInGame()) {
-                    continue;
-                }
-                Callable<Void> task = () -> {
-                    while (!allPlayersGuessed() && player.isInGame()) { // removed && !playerGuessed(player) because most times the "Waiting..." message was not printing"
-                        waitForGuess(player);
-                        if (playerGuessed(player) && player.isInGame()) { //playerGuessed will return true for disconnected players
-                            System.out.println("Player " + player.getUsername() + " has guessed.");
-                            int guess = playerGuesses.get(player);
-                            guess(player, guess);
-
-                            if (!allPlayersGuessed()) {
-                                Server.sendMessageToPlayer(player, MessageType.INFO.toHeader() +"Waiting for other players to guess...");
-                                break;
-                            }
-                        }
-                    }
-                    return null;
-
-                };
-                tasks.add(task);
+    // returns true if the game is over
+    private boolean startRound() {
+        String message = "";
+        if(GAME_ROUND == 1) message = "Game started!";
+        System.out.println("Game " + getId() + " Round " + GAME_ROUND);
+        Server.sendMessageToPlayers(this, MessageType.INFO.toHeader() + "Round " + GAME_ROUND);
+        Server.sendMessageToPlayers(this, MessageType.GAME_GUESS_REQUEST.toHeader() + message + " Guess a number between " + getMinRange() + " and " + getMaxRange());
+        state = State.AWAITING_GUESSES;
+        scheduleGuessDeadlines();
+        // every remaining player may already be gone
+        return allPlayersGuessed() && endRound();
+    }
+
+    // returns true if the game is over
+    private boolean endRound() {
+        // All Players have guessed.
+        System.out.println("All Players have guessed.");
+        Server.sendMessageToPlayers(this, MessageType.INFO.toHeader() + "All players have guessed! The secret number was " + getSecretNumber());
+
+        for (Player p: players) {
+            if (timedOut.containsKey(p)) {
+                Server.sendMessageToPlayer(p, MessageType.INFO.toHeader() + "You did not guess in time this round");
+                continue;
             }
-
-            try {
-                List<Future<Void>> futures = threadPoolPlayers.invokeAll(tasks);
-                for (Future<Void> future : futures) {
-                    future.get(); // This blocks and waits for the task to complete
-                }
-
-                // All Players have guessed.
-                System.out.println("All Players have guessed.");
-                Server.sendMessageToPlayers(this, MessageType.INFO.toHeader() + "All players have guessed! The secret number was " + getSecretNumber());
-
-                for (Player p: players) {
-                    int distance = getDistance(p);
-                    if (distance == 0) {
-                        Server.sendMessageToPlayer(p, MessageType.INFO.toHeader() + "You guessed the secret number!");
-                        Server.sendMessageToPlayers(this, MessageType.INFO.toHeader() + "Player " + p.getUsername() + " guessed the secret number!");
-                    }
-                    Server.sendMessageToPlayer(p,MessageType.INFO.toHeader() +"Your guess was " + distance + " away from the secret number");
-                    if(ranked) Server.sendMessageToPlayer(p,MessageType.INFO.toHeader() + "Your score is " + p.getScore());
-                }
-
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-            }
-            GAME_ROUND++;
-            for(Player p: players){
-                playerGuesses.remove(p);
+            int distance = getDistance(p);
+            if (distance == 0) {
+                Server.sendMessageToPlayer(p, MessageType.INFO.toHeader() + "You guessed the secret number!");
+                Server.sendMessageToPlayers(this, MessageType.INFO.toHeader() + "Player " + p.getUsername() + " guessed the secret number!");
             }
+            Server.sendMessageToPlayer(p,MessageType.INFO.toHeader() +"Your guess was " + distance + " away from the secret number");
+            if(ranked) Server.sendMessageToPlayer(p,MessageType.INFO.toHeader() + "Your score is " + p.getScore());
         }
-    }
 
-    private void waitForGuess(Player player) {
-        Lock lock = playerLocks.get(player);
-        if (lock == null) {
-            lock = new ReentrantLock();
-            playerLocks.put(player, lock);
+        GAME_ROUND++;
+        for(Player p: players){
+            playerGuesses.remove(p);
+            timedOut.remove(p);
+            cancelDeadline(p);
         }
 
-        Condition condition = lock.newCondition();
-        playerConditions.put(player, condition);
-
-        lock.lock();
-        try {
-            while (!playerGuessed(player)) {
-                condition.await();
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } finally {
-            lock.unlock();
+        if (GAME_ROUND > MAX_ROUNDS || players.size() == 0) {
+            return finish();
         }
+        return startRound();
     }
 
-    public void signalGuessReceived(Player player) {
-        Lock lock = playerLocks.get(player);
-        if (lock != null) {
-            lock.lock();
-            try {
-                Condition condition = playerConditions.get(player);
-                if (condition != null) {
-                    condition.signal();
-                }
-            } finally {
-                lock.unlock();
-            }
-        }
+    private boolean finish() {
+        state = State.OVER;
+        System.out.println("Game " + getId() + " finished");
+        return true;
     }
 
-    public void signalDisconnected(Player player) {
-        player.setInGame(false);
-        players.remove(player);
-        signalGuessReceived(player);
+    private void cancelDeadline(Player player) {
+        HashedWheelTimer.Timeout deadline = guessDeadlines.get(player);
+        if (deadline != null) {
+            deadline.cancel();
+            guessDeadlines.remove(player);
+        }
     }
 
-    public ExecutorService getThreadPoolPlayers() {
-        return threadPoolPlayers;
+    // disconnection event, the player no longer holds up the round
+    public void signalDisconnected(Player player) {
+        boolean over;
+        synchronized (this) {
+            player.setInGame(false);
+            players.remove(player);
+            cancelDeadline(player);
+            if (state != State.AWAITING_GUESSES) {
+                return;
+            }
+            over = players.size() == 0 ? finish() : allPlayersGuessed() && endRound();
+        }
+        if (over) {
+            Server.endGame(this);
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,9 +3,8 @@ package main.game;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
-import java.util.Objects;
-import java.util.Timer;
-import java.util.TimerTask;
+
+import main.utils.Clock;
 
 import static main.utils.Helper.MESSAGE_TERMINATOR;
 
@@ -17,8 +16,7 @@ public class Player {
     private int gamesPlayed;
     boolean absent = false;
     private SocketChannel socketChannel;
-    private Timer waitTimer;
-    private int waitingTime = 0;
+    private long enqueuedAt = 0;
     private boolean inQueue = false;
     private boolean inGame = false;
     private boolean authenticated = false;
@@ -108,19 +106,14 @@ public class Player {
         if (getClass() != obj.getClass()) {
             return false;
         }
+        // identity is the id alone, the socket channel changes when a player rejoins with a token
         final Player other = (Player) obj;
-        if (this.id != other.id) {
-            return false;
-        }
-        return this.socketChannel == other.socketChannel;
+        return this.id == other.id;
     }
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 59 * hash + this.id;
-        hash = 59 * hash + Objects.hashCode(this.socketChannel);
-        return hash;
+        return Integer.hashCode(this.id);
     }
 
     public void setUsername(String username) {
@@ -139,33 +132,27 @@ public class Player {
         return sessionToken;
     }
 
+    // waiting time is read against the shared clock, no per-player timer thread
     public void startWaitTimer() {
-        waitTimer = new Timer();
+        enqueuedAt = Clock.now();
         setInQueue(true);
-        waitTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                waitingTime++;
-                //System.out.println("Waiting time: " + waitingTime + " seconds");
-            }
-        }, 0, 1000); // 1000 milliseconds = 1 second
     }
 
     public void stopWaitTimer() {
-        if (waitTimer != null) {
-            waitTimer.cancel();
-            waitTimer = null;
-        }
         setInQueue(false);
     }
 
-    public int getWaitingTime() {
-        return waitingTime;
+    public long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    // seconds spent in the queue so far, 0 when not queued
+    public double getWaitingTime() {
+        return inQueue ? Clock.secondsSince(enqueuedAt) : 0;
     }
 
     public void setInQueue(boolean inQueue) {
         this.inQueue = inQueue;
-        waitingTime = 0;
     }
 
     public boolean isInQueue() {
@@ -190,6 +177,7 @@ public class Player {
 
     public void notifyGameOver() {
         this.setInGame(false);
+        this.updated = true;
         this.gamesPlayed++;
     }
 
@@ -248,8 +236,7 @@ public class Player {
                 ", sessionToken='" + sessionToken + '\'' +
                 ", gamesPlayed=" + gamesPlayed +
                 ", socketChannel=" + socketChannel +
-                ", waitTimer=" + waitTimer +
-                ", waitingTime=" + waitingTime +
+                ", waitingTime=" + getWaitingTime() +
                 ", inQueue=" + inQueue +
                 ", authenticated=" + authenticated +
                 '}';
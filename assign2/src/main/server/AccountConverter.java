@@ -0,0 +1,49 @@
+package main.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// One-shot conversion of the users.csv store into a users.dat store for server.store=mapped.
+// Any users.log tail is folded into users.csv first. Run it with the server stopped:
+//   java main.server.AccountConverter [users.csv] [users.log] [users.dat]
+public class AccountConverter {
+    public static void main(String[] args) throws IOException {
+        Path csvFile = Path.of(args.length > 0 ? args[0] : "users.csv");
+        Path logFile = Path.of(args.length > 1 ? args[1] : "users.log");
+        Path dataFile = Path.of(args.length > 2 ? args[2] : "users.dat");
+
+        if (Files.exists(dataFile) && Files.size(dataFile) > 0) {
+            System.err.println(dataFile + " already exists, not converting");
+            System.exit(1);
+        }
+
+        UserStore.load(csvFile, logFile, 1, Long.MAX_VALUE, 0).close();
+
+        MappedAccountStore store = MappedAccountStore.open(dataFile);
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            String line;
+            boolean headerLine = true;
+            while ((line = reader.readLine()) != null) {
+                if (headerLine) {
+                    headerLine = false;
+                    continue;
+                }
+                UserRecord record = UserRecord.fromCsvLine(line);
+                // duplicates keep their first entry, like logins always did
+                if (record == null || store.register(record.getUsername(), record.getPasswordHash()) == null) {
+                    System.err.println("Skipping user entry: " + line);
+                    skipped++;
+                    continue;
+                }
+                store.update(record.getUsername(), record.getScore(), record.getGamesPlayed());
+            }
+        } finally {
+            store.close();
+        }
+        System.out.println("Converted " + store.size() + " users to " + dataFile + ", skipped " + skipped);
+    }
+}
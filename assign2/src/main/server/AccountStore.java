@@ -0,0 +1,36 @@
+package main.server;
+
+import main.utils.Helper;
+
+import java.util.function.Consumer;
+
+// Where registered accounts live. Picked with server.store:
+//   log    - UserStore, an in-memory index over users.csv and its append-only log (default)
+//   mapped - MappedAccountStore, fixed-width records in a memory-mapped users.dat
+public interface AccountStore {
+    String LOG = "log";
+    String MAPPED = "mapped";
+
+    // returns null if there is no account with this username
+    UserRecord find(String username);
+
+    // false if there is no account with this username. Stores that keep raw digests override this
+    // to compare them where they are stored.
+    default boolean passwordMatches(String username, byte[] passwordDigest) {
+        UserRecord user = find(username);
+        return user != null && Helper.verifyDigest(passwordDigest, user.getPasswordHash());
+    }
+
+    // returns null if the username is taken or can not be stored
+    UserRecord register(String username, String passwordHash);
+
+    void update(String username, int score, int gamesPlayed);
+
+    int size();
+
+    // every registered username, for indexes built over the store at startup
+    void forEachUsername(Consumer<String> action);
+
+    // makes every change durable, no changes are accepted afterwards
+    void close();
+}
@@ -0,0 +1,60 @@
+package main.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded pool running authentication (password hashing and account store access) off the reactors,
+// so a login storm never delays another connection's reads. A full queue rejects the attempt instead
+// of growing and the reactor tells the client the server is busy.
+//
+// Latency is measured by the reactors from receiving an attempt to applying its result, and reported
+// per stats interval together with the queue depth.
+public class AuthWorkers {
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public AuthWorkers(int threads, int queueCapacity) {
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "auth-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // returns false if the queue is full
+    public boolean submit(Runnable task) {
+        try {
+            pool.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    public int queueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public void recordLatency(long nanos) {
+        completed.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // latency figures cover the attempts completed since the previous call
+    public String stats() {
+        long count = completed.getAndSet(0);
+        long total = totalNanos.getAndSet(0);
+        long max = maxNanos.getAndSet(0);
+        return String.format("auth queue depth %d, %d completed, latency avg %.2f ms max %.2f ms, %d rejected",
+                queueDepth(), count, count == 0 ? 0 : total / 1e6 / count, max / 1e6, rejected.get());
+    }
+}
@@ -0,0 +1,79 @@
+package main.server;
+
+import main.utils.Helper;
+import main.utils.LruCache;
+
+import java.util.function.Consumer;
+
+// Keeps the profiles (password digest, score, games played) of recently seen users in memory in front
+// of another account store, so a reconnecting player is served without touching the store.
+// Profiles are cached on lookup and registration and updated in place as games change them.
+public class CachedAccountStore implements AccountStore {
+    private final AccountStore store;
+    private final LruCache<String, UserRecord> profiles;
+
+    public CachedAccountStore(AccountStore store, int capacity) {
+        this.store = store;
+        this.profiles = new LruCache<>(capacity);
+    }
+
+    @Override
+    public UserRecord find(String username) {
+        UserRecord profile = profiles.get(username);
+        if (profile == null) {
+            profile = store.find(username);
+            if (profile != null) {
+                profiles.put(username, profile);
+            }
+        }
+        return profile;
+    }
+
+    // a cached profile that carries its hash is checked without the store
+    @Override
+    public boolean passwordMatches(String username, byte[] passwordDigest) {
+        UserRecord profile = profiles.peek(username);
+        if (profile != null && profile.getPasswordHash() != null) {
+            return Helper.verifyDigest(passwordDigest, profile.getPasswordHash());
+        }
+        return store.passwordMatches(username, passwordDigest);
+    }
+
+    @Override
+    public UserRecord register(String username, String passwordHash) {
+        UserRecord profile = store.register(username, passwordHash);
+        if (profile != null) {
+            profiles.put(username, profile);
+        }
+        return profile;
+    }
+
+    @Override
+    public void update(String username, int score, int gamesPlayed) {
+        UserRecord profile = profiles.peek(username);
+        if (profile != null) {
+            profile.update(score, gamesPlayed);
+        }
+        store.update(username, score, gamesPlayed);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public void forEachUsername(Consumer<String> action) {
+        store.forEachUsername(action);
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    public String stats() {
+        return String.format("profile cache %d entries, %d hits, %d misses, hit rate %.2f",
+                profiles.size(), profiles.hits(), profiles.misses(), profiles.hitRate());
+    }
+}
@@ -0,0 +1,144 @@
+package main.server;
+
+import main.game.Player;
+import main.utils.Clock;
+import main.utils.FrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static main.utils.Helper.MESSAGE_TERMINATOR;
+
+// Per-client state attached to the client's SelectionKey: the inbound frame decoder
+// and the queue of encoded frames waiting to be written. Both belong to the owning reactor's thread.
+public class Connection {
+    private final Reactor reactor;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final FrameDecoder decoder = new FrameDecoder();
+    private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+    private final int highWaterMark;
+    private int queuedBytes = 0;
+    private boolean overflowed = false;
+    private volatile Player player;
+    // when data last arrived from the peer, only used by the owning reactor
+    private long lastReadAt = Clock.now();
+    private boolean authenticating = false;
+
+    public Connection(Reactor reactor, SocketChannel channel, SelectionKey key, int highWaterMark) {
+        this.reactor = reactor;
+        this.channel = channel;
+        this.key = key;
+        this.highWaterMark = highWaterMark;
+    }
+
+    public Reactor getReactor() {
+        return reactor;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public SelectionKey getKey() {
+        return key;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(Player player) {
+        this.player = player;
+    }
+
+    public long getLastReadAt() {
+        return lastReadAt;
+    }
+
+    // true while an authentication attempt is with the auth workers, only used by the owning reactor
+    public boolean isAuthenticating() {
+        return authenticating;
+    }
+
+    public void setAuthenticating(boolean authenticating) {
+        this.authenticating = authenticating;
+    }
+
+    public int read() throws IOException {
+        int bytesRead = decoder.read(channel);
+        if (bytesRead > 0) {
+            lastReadAt = Clock.now();
+        }
+        return bytesRead;
+    }
+
+    public String nextFrame() {
+        return decoder.nextFrame();
+    }
+
+    // sends from any thread go through the owning reactor, which is the only writer of this connection
+    public void send(String message) {
+        reactor.send(this, message);
+    }
+
+    // queues a frame for the next flush, only used by the owning reactor
+    void enqueue(String message) {
+        if (overflowed || !key.isValid()) {
+            return;
+        }
+        ByteBuffer frame = ByteBuffer.wrap((message + MESSAGE_TERMINATOR).getBytes(StandardCharsets.UTF_8));
+        if (queuedBytes + frame.remaining() > highWaterMark) {
+            // slow consumer, shed its backlog and let the next flush drop it
+            overflow();
+            return;
+        }
+        boolean wasEmpty = outbound.isEmpty();
+        outbound.add(frame);
+        queuedBytes += frame.remaining();
+        if (wasEmpty) {
+            enableWrite();
+        }
+    }
+
+    // the peer is over its high-water mark, it is disconnected on its next OP_WRITE
+    private void overflow() {
+        overflowed = true;
+        enableWrite();
+    }
+
+    // called by the selector thread on OP_WRITE, returns false if the connection must be dropped
+    public boolean flush() throws IOException {
+        if (overflowed) {
+            outbound.clear();
+            queuedBytes = 0;
+            return false;
+        }
+        while (!outbound.isEmpty()) {
+            ByteBuffer frame = outbound.peek();
+            channel.write(frame);
+            if (frame.hasRemaining()) {
+                // kernel send buffer is full, wait for the next OP_WRITE
+                return true;
+            }
+            queuedBytes -= frame.capacity();
+            outbound.poll();
+        }
+        key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        return true;
+    }
+
+    private void enableWrite() {
+        try {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+        } catch (CancelledKeyException e) {
+            // connection already closed, nothing left to flush
+        }
+    }
+}
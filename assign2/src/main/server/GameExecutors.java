@@ -0,0 +1,60 @@
+package main.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Executors that game events (start, guesses, deadlines, disconnections) can be dispatched on.
+//   inline   - run on the thread that produced the event (reactor or timing wheel)
+//   platform - a fixed pool of platform threads, one per core
+//   virtual  - one virtual thread per event, when the runtime supports them
+public class GameExecutors {
+    public static final String INLINE = "inline";
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    private GameExecutors() {
+    }
+
+    public static Executor create(String mode) {
+        switch (mode) {
+            case INLINE:
+                return Runnable::run;
+            case PLATFORM:
+                return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread thread = new Thread(r, "game-events");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            case VIRTUAL:
+                ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+                if (virtual != null) {
+                    return virtual;
+                }
+                System.err.println("Virtual threads are not supported by this runtime, using platform threads");
+                return create(PLATFORM);
+            default:
+                throw new IllegalArgumentException("Unknown game executor mode: " + mode);
+        }
+    }
+
+    public static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    // looked up reflectively so the server still builds and runs on runtimes without virtual threads
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
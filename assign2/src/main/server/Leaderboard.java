@@ -0,0 +1,102 @@
+package main.server;
+
+import main.utils.ConcurrentHashMap;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Players ranked by score, highest first, ties broken by username.
+//
+// Score changes update a skip list in O(log n). Queries never touch it: they are answered from an
+// immutable sorted snapshot that refresh() replaces copy-on-write when the ranking changed, so game
+// threads updating scores and clients reading the board never contend. A rank is found by binary
+// search for the player's entry in the snapshot, so it is as current as the last refresh.
+public class Leaderboard {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry entry) -> entry.score).reversed()
+            .thenComparing(entry -> entry.username);
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<String, Standing> standings = new ConcurrentHashMap<>();
+    private volatile Entry[] snapshot = new Entry[0];
+    private volatile boolean dirty = false;
+
+    public void update(String username, int score) {
+        Standing standing = standings.computeIfAbsent(username, name -> new Standing());
+        synchronized (standing) {
+            if (standing.current != null) {
+                if (standing.current.score == score) {
+                    return;
+                }
+                ranking.remove(standing.current);
+            }
+            standing.current = new Entry(username, score);
+            ranking.add(standing.current);
+        }
+        dirty = true;
+    }
+
+    // publishes the current ranking to queries if it changed since the last refresh
+    public synchronized void refresh() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Entry[] next = ranking.toArray(new Entry[0]);
+        for (Entry entry : next) {
+            standings.get(entry.username).published = entry;
+        }
+        snapshot = next;
+    }
+
+    public List<Entry> top(int count) {
+        Entry[] board = snapshot;
+        return Collections.unmodifiableList(Arrays.asList(board).subList(0, Math.min(count, board.length)));
+    }
+
+    // the published entry of the player, null if it is not on the board yet
+    public Entry find(String username) {
+        Standing standing = standings.get(username);
+        return standing == null ? null : standing.published;
+    }
+
+    // 1 for the top player, 0 if the player is not on the board yet
+    public int rank(String username) {
+        Entry entry = find(username);
+        if (entry == null) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(snapshot, entry, ORDER);
+        return index >= 0 ? index + 1 : -index;
+    }
+
+    public int size() {
+        return snapshot.length;
+    }
+
+    public static class Entry {
+        private final String username;
+        private final int score;
+
+        private Entry(String username, int score) {
+            this.username = username;
+            this.score = score;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    // the player's entry in the skip list and the one in the published snapshot
+    private static class Standing {
+        private Entry current;
+        private volatile Entry published;
+    }
+}
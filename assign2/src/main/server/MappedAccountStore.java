@@ -0,0 +1,311 @@
+package main.server;
+
+import main.utils.Helper;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Accounts as fixed-width records in a memory-mapped file, for account tables too large to keep as objects.
+//
+// users.dat is a 16 byte header (magic, version, record size, record count) followed by 80 byte records:
+//    0  username hash (8)
+//    8  score (4)
+//   12  games played (4)
+//   16  SHA-256 password digest, raw (32)
+//   48  username length (1) and UTF-8 username (31)
+// Records are only appended. The header count is written after the record, so a record belongs to
+// the table once the count includes it. Lookups go through an open-addressed table of record
+// numbers keyed by the username hash, rebuilt from the stored hashes when the file is opened.
+// Reads and writes are absolute gets and puts on the mapping, the page cache writes them back and
+// close() forces them to disk.
+public class MappedAccountStore implements AccountStore {
+    public static final int RECORD_SIZE = 80;
+    public static final int MAX_USERNAME_BYTES = 31;
+
+    private static final int MAGIC = 0x41434354; // "ACCT"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 12;
+    private static final int SCORE_OFFSET = 8;
+    private static final int GAMES_OFFSET = 12;
+    private static final int DIGEST_OFFSET = 16;
+    private static final int DIGEST_SIZE = 32;
+    private static final int NAME_OFFSET = 48;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    // find and update only read the mapping and the table, register and growth replace them
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private MappedByteBuffer map;
+    private int capacity;
+    private int count;
+    // linear probing, each slot holds a record number + 1, 0 marks an empty slot
+    private int[] slots;
+
+    private MappedAccountStore(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    public static MappedAccountStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedAccountStore store = new MappedAccountStore(file, channel);
+        try {
+            store.load();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        System.out.println("Loaded " + store.count + " users from " + file);
+        return store;
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            capacity = INITIAL_CAPACITY;
+            map();
+            map.putInt(0, MAGIC);
+            map.putInt(4, VERSION);
+            map.putInt(8, RECORD_SIZE);
+            map.putInt(COUNT_OFFSET, 0);
+        } else {
+            if (size < HEADER_SIZE) {
+                throw new IOException(file + " is not an account store");
+            }
+            capacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+            map();
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || map.getInt(8) != RECORD_SIZE) {
+                throw new IOException(file + " is not an account store");
+            }
+        }
+        count = map.getInt(COUNT_OFFSET);
+        if (count < 0 || count > capacity) {
+            throw new IOException(file + " has a corrupt record count: " + count);
+        }
+        rebuildSlots();
+    }
+
+    @Override
+    public UserRecord find(String username) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(name);
+        lock.readLock().lock();
+        try {
+            int record = lookup(name, hash);
+            if (record < 0) {
+                return null;
+            }
+            int offset = recordOffset(record);
+            // the digest stays in the mapping, passwordMatches compares against it there
+            return new UserRecord(username, null, map.getInt(offset + SCORE_OFFSET), map.getInt(offset + GAMES_OFFSET));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // compares against the stored digest byte by byte, in constant time and without copying it
+    @Override
+    public boolean passwordMatches(String username, byte[] passwordDigest) {
+        if (passwordDigest.length != DIGEST_SIZE) {
+            return false;
+        }
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(name);
+        lock.readLock().lock();
+        try {
+            int record = lookup(name, hash);
+            if (record < 0) {
+                return false;
+            }
+            int offset = recordOffset(record) + DIGEST_OFFSET;
+            int difference = 0;
+            for (int i = 0; i < DIGEST_SIZE; i++) {
+                difference |= map.get(offset + i) ^ passwordDigest[i];
+            }
+            return difference == 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // also returns null for usernames longer than MAX_USERNAME_BYTES and malformed password hashes
+    @Override
+    public UserRecord register(String username, String passwordHash) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        byte[] digest = passwordHash == null ? null : Helper.fromHex(passwordHash);
+        if (name.length > MAX_USERNAME_BYTES || digest == null || digest.length != DIGEST_SIZE) {
+            return null;
+        }
+        long hash = hash(name);
+        lock.writeLock().lock();
+        try {
+            if (lookup(name, hash) >= 0 || (count == capacity && !grow())) {
+                return null;
+            }
+            int offset = recordOffset(count);
+            map.putLong(offset, hash);
+            map.putInt(offset + SCORE_OFFSET, 0);
+            map.putInt(offset + GAMES_OFFSET, 0);
+            map.put(offset + DIGEST_OFFSET, digest);
+            map.put(offset + NAME_OFFSET, (byte) name.length);
+            map.put(offset + NAME_OFFSET + 1, name);
+            insertSlot(count, hash);
+            count++;
+            map.putInt(COUNT_OFFSET, count);
+            return new UserRecord(username, passwordHash, 0, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // a user is online at most once, so updates to the same record never race each other
+    @Override
+    public void update(String username, int score, int gamesPlayed) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(name);
+        lock.readLock().lock();
+        try {
+            int record = lookup(name, hash);
+            if (record < 0) {
+                return;
+            }
+            int offset = recordOffset(record);
+            map.putInt(offset + SCORE_OFFSET, score);
+            map.putInt(offset + GAMES_OFFSET, gamesPlayed);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            map.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing " + file + ": " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachUsername(Consumer<String> action) {
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                int offset = recordOffset(i) + NAME_OFFSET;
+                byte[] name = new byte[map.get(offset)];
+                map.get(offset + 1, name);
+                action.accept(new String(name, StandardCharsets.UTF_8));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // returns the record number, or -1 if there is no record with this username
+    private int lookup(byte[] name, long hash) {
+        int mask = slots.length - 1;
+        for (int i = slot(hash, mask); slots[i] != 0; i = (i + 1) & mask) {
+            int record = slots[i] - 1;
+            if (map.getLong(recordOffset(record)) == hash && nameEquals(record, name)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int record, byte[] name) {
+        int offset = recordOffset(record) + NAME_OFFSET;
+        if (map.get(offset) != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (map.get(offset + 1 + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertSlot(int record, long hash) {
+        int mask = slots.length - 1;
+        int i = slot(hash, mask);
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = record + 1;
+    }
+
+    // twice as many slots as the mapping has records, the table never gets more than half full
+    private void rebuildSlots() {
+        slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        for (int i = 0; i < count; i++) {
+            insertSlot(i, map.getLong(recordOffset(i)));
+        }
+    }
+
+    // doubles the mapping, returns false if it can not grow any further
+    private boolean grow() {
+        long newCapacity = capacity * 2L;
+        if (HEADER_SIZE + newCapacity * RECORD_SIZE > Integer.MAX_VALUE) {
+            System.err.println(file + " is full");
+            return false;
+        }
+        int oldCapacity = capacity;
+        capacity = (int) newCapacity;
+        try {
+            map();
+        } catch (IOException e) {
+            System.err.println("Error growing " + file + ": " + e.getMessage());
+            capacity = oldCapacity;
+            return false;
+        }
+        rebuildSlots();
+        return true;
+    }
+
+    // mapping past the end of the file extends it
+    private void map() throws IOException {
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    private static int recordOffset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // 64-bit FNV-1a
+    private static long hash(byte[] name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
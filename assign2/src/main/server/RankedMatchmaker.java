@@ -0,0 +1,289 @@
+package main.server;
+
+import main.game.Player;
+import main.utils.Clock;
+import main.utils.ConcurrentList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ranked wait queue kept in a skip list ordered by score, then enqueue time.
+//
+// A group of players can play together when the spread of their scores is within
+// ratio * waitingTime of every member, i.e. of its most recently enqueued member.
+// So each player is only ever the "anchor" of groups made of players that were waiting
+// before them, and the time at which such a group first becomes possible can be computed
+// on enqueue. The matcher wakes up at those times instead of polling the whole queue.
+public class RankedMatchmaker implements Iterable<Player> {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final long NEVER = Long.MAX_VALUE;
+    // entries looked at on each side of an anchor, so a dense block of newer players is not walked whole
+    private static final int SCAN_LIMIT = 64;
+
+    private final int groupSize;
+    private final double ratio;
+    private final AtomicLong sequence = new AtomicLong();
+    private final NavigableSet<Entry> byScore = new ConcurrentSkipListSet<>(
+            Comparator.comparingInt((Entry e) -> e.score)
+                    .thenComparingLong(e -> e.enqueuedAt)
+                    .thenComparingLong(e -> e.seq));
+    private final ConcurrentHashMap<Player, Entry> entries = new ConcurrentHashMap<>();
+
+    // everything below is only touched by the matcher, a single threaded scheduler
+    private final ScheduledExecutorService matcher;
+    private final PriorityQueue<Entry> pending = new PriorityQueue<>(Comparator.comparingLong((Entry e) -> e.eligibleAt));
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt = NEVER;
+    private boolean waitingForSlot = false;
+
+    public RankedMatchmaker(int groupSize, double ratio, ScheduledExecutorService matcher) {
+        this.groupSize = groupSize;
+        this.ratio = ratio;
+        this.matcher = matcher;
+    }
+
+    // the player's wait timer must already be started
+    public void add(Player player) {
+        Entry entry = new Entry(player, sequence.getAndIncrement());
+        entries.put(player, entry);
+        byScore.add(entry);
+        matcher.execute(() -> onEnqueue(entry));
+    }
+
+    public void remove(Player player) {
+        Entry entry = entries.remove(player);
+        if (entry != null) {
+            byScore.remove(entry);
+        }
+    }
+
+    public boolean contains(Player player) {
+        return entries.containsKey(player);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // asks the matcher to retry due groups, e.g. after a game slot was freed
+    public void poke() {
+        matcher.execute(() -> {
+            waitingForSlot = false;
+            matchDue();
+        });
+    }
+
+    @Override
+    public Iterator<Player> iterator() {
+        Iterator<Entry> iterator = byScore.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Player next() {
+                return iterator.next().player;
+            }
+        };
+    }
+
+    private void onEnqueue(Entry entry) {
+        if (!isQueued(entry)) {
+            return;
+        }
+        entry.eligibleAt = computeEligibleAt(entry);
+        if (entry.eligibleAt != NEVER) {
+            pending.add(entry);
+        }
+        matchDue();
+    }
+
+    private void matchDue() {
+        long now = Clock.now();
+        while (!pending.isEmpty() && pending.peek().eligibleAt <= now) {
+            Entry anchor = pending.poll();
+            if (!isQueued(anchor)) {
+                continue;
+            }
+            if (anchor.player.getAbsent()) {
+                drop(anchor);
+                continue;
+            }
+
+            List<Entry> group = findGroup(anchor, ratio * (now - anchor.enqueuedAt) / NANOS_PER_SECOND);
+            if (group != null && dropAbsent(group)) {
+                group = null;
+            }
+            if (group == null) {
+                // some of the players it was waiting for are gone, find out when it can match now
+                anchor.eligibleAt = computeEligibleAt(anchor);
+                if (anchor.eligibleAt != NEVER) {
+                    pending.add(anchor);
+                }
+                continue;
+            }
+
+            ConcurrentList<Player> players = new ConcurrentList<>();
+            for (Entry entry : group) {
+                players.add(entry.player);
+            }
+            if (!Server.startGame(players, true)) {
+                // no free game slot, retried when a game ends
+                pending.add(anchor);
+                waitingForSlot = true;
+                break;
+            }
+            System.out.println("Created a ranked game with players: " + group);
+            for (Entry entry : group) {
+                remove(entry.player);
+            }
+        }
+        scheduleWakeup();
+    }
+
+    private void scheduleWakeup() {
+        long next = pending.isEmpty() || waitingForSlot ? NEVER : pending.peek().eligibleAt;
+        if (next == wakeupAt) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+            wakeup = null;
+        }
+        wakeupAt = next;
+        if (next != NEVER) {
+            wakeup = matcher.schedule(() -> {
+                wakeup = null;
+                wakeupAt = NEVER;
+                matchDue();
+            }, Math.max(0, next - Clock.now()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // earliest time at which the anchor and groupSize - 1 players queued before it fit in its window
+    private long computeEligibleAt(Entry anchor) {
+        List<Entry> around = olderNeighbours(anchor, Double.MAX_VALUE);
+        int spread = minimalSpread(around, anchor, null);
+        if (spread < 0) {
+            return NEVER;
+        }
+        if (ratio <= 0) {
+            return spread == 0 ? anchor.enqueuedAt : NEVER;
+        }
+        return anchor.enqueuedAt + (long) Math.ceil(spread / ratio * NANOS_PER_SECOND);
+    }
+
+    private List<Entry> findGroup(Entry anchor, double window) {
+        List<Entry> around = olderNeighbours(anchor, window);
+        List<Entry> group = new ArrayList<>(groupSize);
+        int spread = minimalSpread(around, anchor, group);
+        // the tolerance absorbs rounding in computeEligibleAt, so a due anchor always sees its group
+        return spread >= 0 && spread <= window + 1e-6 ? group : null;
+    }
+
+    // up to groupSize - 1 players queued before the anchor on each side of it within the window, in score order.
+    // Older players hidden behind more than SCAN_LIMIT newer ones are not considered: the newer players in
+    // between are closer in score and take the anchor into their own groups as an older member.
+    private List<Entry> olderNeighbours(Entry anchor, double window) {
+        List<Entry> lower = collect(byScore.headSet(anchor, false).descendingIterator(), anchor, window);
+        List<Entry> upper = collect(byScore.tailSet(anchor, false).iterator(), anchor, window);
+
+        List<Entry> around = new ArrayList<>(lower.size() + upper.size() + 1);
+        for (int i = lower.size() - 1; i >= 0; i--) {
+            around.add(lower.get(i));
+        }
+        around.add(anchor);
+        around.addAll(upper);
+        return around;
+    }
+
+    private List<Entry> collect(Iterator<Entry> iterator, Entry anchor, double window) {
+        List<Entry> found = new ArrayList<>(groupSize - 1);
+        int scanned = 0;
+        while (found.size() < groupSize - 1 && scanned++ < SCAN_LIMIT && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (Math.abs(entry.score - anchor.score) > window) {
+                break;
+            }
+            if (entry.isOlderThan(anchor)) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    // smallest score spread over groupSize consecutive entries containing the anchor, -1 if there are not enough
+    private int minimalSpread(List<Entry> around, Entry anchor, List<Entry> group) {
+        int anchorIndex = around.indexOf(anchor);
+        int best = -1;
+        int bestStart = -1;
+        for (int start = Math.max(0, anchorIndex - groupSize + 1); start <= anchorIndex && start + groupSize <= around.size(); start++) {
+            int spread = around.get(start + groupSize - 1).score - around.get(start).score;
+            if (best < 0 || spread < best) {
+                best = spread;
+                bestStart = start;
+            }
+        }
+        if (group != null && bestStart >= 0) {
+            group.addAll(around.subList(bestStart, bestStart + groupSize));
+        }
+        return best;
+    }
+
+    private boolean isQueued(Entry entry) {
+        return entries.get(entry.player) == entry;
+    }
+
+    // drops the absent members of the group, true if there were any
+    private boolean dropAbsent(List<Entry> group) {
+        boolean dropped = false;
+        for (Entry entry : group) {
+            if (entry.player.getAbsent()) {
+                drop(entry);
+                dropped = true;
+            }
+        }
+        return dropped;
+    }
+
+    private void drop(Entry entry) {
+        remove(entry.player);
+        Server.removeAbsentPlayer(entry.player);
+    }
+
+    private static class Entry {
+        private final Player player;
+        private final int score;
+        private final long enqueuedAt;
+        private final long seq;
+        private long eligibleAt = NEVER;
+
+        Entry(Player player, long seq) {
+            this.player = player;
+            this.score = player.getScore();
+            this.enqueuedAt = player.getEnqueuedAt();
+            this.seq = seq;
+        }
+
+        boolean isOlderThan(Entry other) {
+            return enqueuedAt < other.enqueuedAt || (enqueuedAt == other.enqueuedAt && seq < other.seq);
+        }
+
+        @Override
+        public String toString() {
+            return player.getUsername();
+        }
+    }
+}
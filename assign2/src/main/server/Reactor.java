@@ -0,0 +1,232 @@
+package main.server;
+
+import main.utils.Clock;
+import main.utils.ConcurrentLinkedQueue;
+import main.utils.HashedWheelTimer;
+import main.utils.MessageType;
+import main.utils.MpscRingBuffer;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Selector loop owning a subset of the client connections.
+// It does the framing, message dispatch and write flushing for every connection handed to it,
+// and drives the timing wheel used for those connections' heartbeats, idle eviction and guess deadlines.
+//
+// Messages sent from other threads (game events, auth completions, the matchmakers) are published
+// into the reactor's outbound ring and copied into their connection's queue by this thread, so each
+// socket has a single writer. The selector is only woken when the ring goes from empty to non-empty.
+// A sender never waits for room in the ring, a full ring spills onto the task queue.
+public class Reactor implements Runnable {
+    private static final long TICK_MILLIS = 100;
+    private static final int TICKS_PER_WHEEL = 512;
+
+    // hands drained events to their connection, and lets go of them so the slot keeps nothing alive
+    private static final Consumer<OutboundEvent> DELIVER = event -> {
+        Connection connection = event.connection;
+        String message = event.message;
+        event.connection = null;
+        event.message = null;
+        connection.enqueue(message);
+    };
+
+    private final int id;
+    private final Selector selector;
+    private final int highWaterMark;
+    private final long heartbeatMillis;
+    private final long idleTimeoutMillis;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final HashedWheelTimer timer = new HashedWheelTimer(TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+    private final MpscRingBuffer<OutboundEvent> outbound;
+    private volatile Thread thread;
+
+    public Reactor(int id, int highWaterMark, long heartbeatMillis, long idleTimeoutMillis, int outboundRingSize) throws IOException {
+        this.id = id;
+        this.selector = Selector.open();
+        this.outbound = new MpscRingBuffer<>(outboundRingSize, OutboundEvent::new);
+        this.highWaterMark = highWaterMark;
+        this.heartbeatMillis = heartbeatMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // expired tasks run on this reactor's thread
+    public HashedWheelTimer getTimer() {
+        return timer;
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    // hands an accepted channel over to this reactor, safe to call from any thread
+    public void register(SocketChannel clientSocketChannel) {
+        execute(() -> {
+            try {
+                clientSocketChannel.configureBlocking(false);
+                SelectionKey key = clientSocketChannel.register(selector, SelectionKey.OP_READ);
+                Connection connection = new Connection(this, clientSocketChannel, key, highWaterMark);
+                key.attach(connection);
+                Server.handleConnection(connection);
+                scheduleHeartbeat(connection);
+            } catch (IOException e) {
+                System.err.println("Error registering client: " + e.getMessage());
+                try {
+                    clientSocketChannel.close();
+                } catch (IOException ignored) {
+                    // already closed
+                }
+            }
+        });
+    }
+
+    // runs the task on this reactor's thread
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    // queues the message on the connection, safe to call from any thread
+    public void send(Connection connection, String message) {
+        if (Thread.currentThread() == thread) {
+            // anything published before this message goes out first
+            outbound.drain(DELIVER);
+            connection.enqueue(message);
+            return;
+        }
+        long sequence = outbound.tryClaim();
+        if (sequence < 0) {
+            // a burst filled the ring: never stall the sender (another reactor, a game event) on it,
+            // hand the message over as a task instead. The task drains the ring first, so the
+            // sender's own earlier messages go out before this one unless another sender is still
+            // filling in a slot ahead of them
+            execute(() -> {
+                outbound.drain(DELIVER);
+                connection.enqueue(message);
+            });
+            return;
+        }
+        OutboundEvent event = outbound.get(sequence);
+        event.connection = connection;
+        event.message = message;
+        if (outbound.publish(sequence)) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        while (true) {
+            try {
+                // a drain that stopped early leaves events behind that no sender will wake us for
+                if (outbound.isEmpty()) {
+                    selector.select(timer.millisUntilNextTick());
+                } else {
+                    selector.selectNow();
+                }
+            } catch (IOException e) {
+                System.err.println("Reactor " + id + " failed to select: " + e.getMessage());
+                return;
+            }
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            timer.advance();
+            outbound.drain(DELIVER);
+
+            Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+            while (keyIterator.hasNext()) {
+                SelectionKey key = keyIterator.next();
+                keyIterator.remove();
+                if (key.isValid()) {
+                    process(key);
+                }
+            }
+        }
+    }
+
+    private void process(SelectionKey key) {
+        SocketChannel clientSocketChannel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        if (key.isWritable()) {
+            try {
+                if (!connection.flush()) {
+                    Server.handleDisconnection(key, clientSocketChannel, new SocketException("Outbound queue exceeded " + highWaterMark + " bytes"));
+                    return;
+                }
+            }
+            catch (IOException e) {
+                Server.handleDisconnection(key, clientSocketChannel, new SocketException(e.getMessage()));
+                return;
+            }
+        }
+
+        if (key.isReadable()) {
+            int bytesRead;
+            try {
+                bytesRead = connection.read();
+            }
+            catch (SocketException e) {
+                // Exceção não ocorreu ( quando ligação é terminada, bytesRead = -1 )
+                // Handle the "Connection reset" exception
+                Server.handleDisconnection(key, clientSocketChannel, e);
+                return;
+            }
+            catch (IOException e) {
+                // Oversized frame or other I/O error, drop the connection
+                Server.handleDisconnection(key, clientSocketChannel, new SocketException(e.getMessage()));
+                return;
+            }
+
+            if (bytesRead == -1) {
+                Server.handleDisconnection(key, clientSocketChannel, new SocketException("Connection reset"));
+                return;
+            }
+
+            // a single read may carry several frames, or only part of one
+            String message;
+            while (key.isValid() && (message = connection.nextFrame()) != null) {
+                Server.handleMessage(clientSocketChannel, message);
+            }
+        }
+    }
+
+    // one outstanding timeout per connection: pings it, and evicts it once nothing has arrived from
+    // the peer for the idle timeout. Clients echo every ping, so a connected client is never silent
+    // for long while it waits; a dead half-open peer is, and is dropped at the first heartbeat past
+    // the timeout instead of whenever a write to it finally fails.
+    private void scheduleHeartbeat(Connection connection) {
+        timer.newTimeout(() -> {
+            SelectionKey key = connection.getKey();
+            if (!key.isValid()) {
+                return;
+            }
+            long silentMillis = TimeUnit.NANOSECONDS.toMillis(Clock.now() - connection.getLastReadAt());
+            if (silentMillis >= idleTimeoutMillis) {
+                Server.handleDisconnection(key, connection.getChannel(), new SocketException("No data from peer for " + silentMillis + " ms"));
+                return;
+            }
+            connection.send(MessageType.KEEP_ALIVE.toHeader());
+            scheduleHeartbeat(connection);
+        }, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // a preallocated slot of the outbound ring
+    private static class OutboundEvent {
+        private Connection connection;
+        private String message;
+    }
+}
@@ -3,219 +3,222 @@ package main.server;
 
 import main.game.Player;
 import main.game.Game;
+import main.utils.BloomFilter;
+import main.utils.Clock;
+import main.utils.ConcurrentLinkedList;
 import main.utils.ConcurrentList;
+import main.utils.HashedWheelTimer;
+import main.utils.ConcurrentHashMap;
 import main.utils.Helper;
 import main.utils.MessageType;
 
-import static java.lang.Thread.sleep;
-import static main.utils.Helper.MESSAGE_TERMINATOR;
-import static main.utils.Helper.findFirst;
 
 import java.io.*;
 import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Server {
     private static final int PORT = 12345;
     private static final int MAX_PLAYERS = 2;
-    private static final int MAX_GAMES = 10;
-    private static final int BUFFER_SIZE = 1024;
-
-    private static int playerCount = 0;
-    private static ConcurrentList<Player> normalQueue = new ConcurrentList<>();
-    private static ConcurrentList<Player> rankedQueue = new ConcurrentList<>();
-    private static List<Player> unauthenticatedPlayers = new ArrayList<>();
+    // admission control only: matched players wait in their queue while this many games are running
+    private static final int MAX_GAMES = Integer.getInteger("server.maxGames", 10_000);
+    private static final int REACTORS = Integer.getInteger("server.reactors", Runtime.getRuntime().availableProcessors());
+    private static final int OUTBOUND_HIGH_WATER_MARK = Integer.getInteger("server.outboundHighWaterMark", 256 * 1024);
+    // messages other threads may have in flight to one reactor, rounded up to a power of two
+    private static final int OUTBOUND_RING_SIZE = Integer.highestOneBit(Math.max(Integer.getInteger("server.outboundRingSize", 4096), 2) * 2 - 1);
+    private static final int HEARTBEAT_SECONDS = Integer.getInteger("server.heartbeatSeconds", 15);
+    // a connection that sends nothing for this long, not even the echo of a ping, is dropped.
+    // Checked on every heartbeat, so the eviction lands within one heartbeat past it
+    private static final int IDLE_TIMEOUT_SECONDS = Integer.getInteger("server.idleTimeoutSeconds", 600);
+    private static final int GUESS_TIMEOUT_SECONDS = Integer.getInteger("server.guessTimeoutSeconds", 60);
+    // how long a player who disconnected while queued keeps its place for a token rejoin
+    private static final long SESSION_GRACE_SECONDS = Long.getLong("server.sessionGraceSeconds", 300);
+    // user store write-behind: flush once this many accounts changed, or after the interval
+    private static final int PERSIST_BATCH_SIZE = Integer.getInteger("server.persistBatchSize", 256);
+    private static final long PERSIST_INTERVAL_MILLIS = Long.getLong("server.persistIntervalMillis", 1000);
+    // the user log is folded into a new users.csv snapshot once it grows past this size
+    private static final long COMPACT_LOG_BYTES = Long.getLong("server.compactLogBytes", 1024 * 1024);
+    private static final String STORE = System.getProperty("server.store", AccountStore.LOG);
+    // profiles of this many recently seen users are kept in front of the account store, 0 disables it
+    private static final int PROFILE_CACHE_SIZE = Integer.getInteger("server.profileCacheSize", 10_000);
+    private static final long LEADERBOARD_REFRESH_MILLIS = Long.getLong("server.leaderboardRefreshMillis", 1000);
+    private static final int LEADERBOARD_DEFAULT_ENTRIES = 10;
+    private static final int LEADERBOARD_MAX_ENTRIES = 100;
+    private static final long STATS_INTERVAL_SECONDS = Long.getLong("server.statsIntervalSeconds", 60);
+    // attempts beyond the queue capacity are turned away as "server busy"
+    private static final int AUTH_WORKERS = Integer.getInteger("server.authWorkers", Runtime.getRuntime().availableProcessors());
+    private static final int AUTH_QUEUE_CAPACITY = Integer.getInteger("server.authQueueCapacity", 1024);
+
+    private static final AtomicInteger playerCount = new AtomicInteger();
+    private static final double ratio = 10;
+
+    private static final ConcurrentHashMap<SocketChannel, Connection> connections = new ConcurrentHashMap<>();
+    // online players by lowercased username, and the game each player is currently in
+    private static final ConcurrentHashMap<String, Player> onlineUsers = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Player, Game> playerGames = new ConcurrentHashMap<>();
+    private static ConcurrentLinkedList<Player> normalQueue = new ConcurrentLinkedList<>();
+    // single thread for all queue work: normal matching and the ranked matcher's wake-ups
+    private static final ScheduledExecutorService queueScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "queue-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Executor gameExecutor = GameExecutors.create(System.getProperty("server.gameExecutor", GameExecutors.INLINE));
+    private static final AuthWorkers authWorkers = new AuthWorkers(AUTH_WORKERS, AUTH_QUEUE_CAPACITY);
+    private static final RankedMatchmaker rankedQueue = new RankedMatchmaker(MAX_PLAYERS, ratio, queueScheduler);
+    private static final SessionTokens sessionTokens = new SessionTokens(SESSION_GRACE_SECONDS * 1000, Server::expireSession);
+    private static final Set<Player> unauthenticatedPlayers = java.util.concurrent.ConcurrentHashMap.newKeySet();
     private static ConcurrentList<Game> activeGames = new ConcurrentList<>();
-    private static final ExecutorService threadPool = Executors.newFixedThreadPool(MAX_GAMES);
-    private static final List<ExecutorService> threadPoolPlayers = new ArrayList<>(MAX_GAMES);
 
-    private static final List<Boolean> threadPoolPlayersAvailability = new ArrayList<>(Collections.nCopies(MAX_GAMES, true));
+    private static int reservedGames = 0;
     private static int gameCount = 0;
-    private static double ratio = 10;
 
-    private static final ReadWriteLock databaseLock = new ReentrantReadWriteLock();
+    private static final String USERS_FILE = "users.csv";
+    private static final String USERS_LOG_FILE = "users.log";
+    private static final String USERS_DATA_FILE = "users.dat";
+    private static AccountStore userStore;
+    private static CachedAccountStore profileCache;
+    // every registered username, so logins for new usernames skip the store lookup
+    private static BloomFilter knownUsernames;
+    private static final Leaderboard leaderboard = new Leaderboard();
 
 
     public static void main(String[] args) throws IOException {
+        userStore = openAccountStore();
+        // built from the store itself, the startup scan would only churn the profile cache
+        knownUsernames = buildUsernameFilter(userStore);
+        loadLeaderboard(userStore);
+        if (PROFILE_CACHE_SIZE > 0) {
+            profileCache = new CachedAccountStore(userStore, PROFILE_CACHE_SIZE);
+            userStore = profileCache;
+        }
+
         ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
-        serverSocketChannel.configureBlocking(false);
         serverSocketChannel.socket().bind(new InetSocketAddress(PORT));
-        Selector selector = Selector.open();
-        serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
-
-        // Create a new ExecutorService for each index in the threadPoolPlayers list
-        for (int i = 0; i < MAX_GAMES; i++) {
-            threadPoolPlayers.add(Executors.newFixedThreadPool(MAX_PLAYERS));
-        }
-
-        Runtime.getRuntime().addShutdownHook(new Thread(Server::updateAllPlayers));
-
-        System.out.println("Server is up and running");
-
-
-        new Thread(() -> {
-            while (true) {
-                // Start a new game if enough players are in the wait queue
-                if (rankedQueue.size() >= MAX_PLAYERS) {
-
-                    List<List<Integer>> eligibleGame  = new ArrayList<>();
-                    //matchmaking
-                    Iterator<Player> iterator = rankedQueue.iterator();
-                    while (iterator.hasNext()) {
-                        Player player = iterator.next();
-                        if (player.getAbsent()) {
-                            iterator.remove(); // this will remove the player from the queue
-                            removeAbsentPlayer(player);
-                            continue;
-                        }
-                        List<Integer> eligPlayers = findEligibleOpponents(player, rankedQueue);
-                        eligibleGame.add(eligPlayers);
-                    }
-
-                    //Intersect all the lists
-                    List<Integer> intersect = eligibleGame.get(0);
-                    for(int i = 1; i < eligibleGame.size(); i++) {
-                        intersect.retainAll(eligibleGame.get(i));
-                    }
-
-                    //Create a new game with the intersected players
-                    if(intersect.size()>= MAX_PLAYERS && activeGames.size() < MAX_GAMES) {
-                        System.out.println("Creating a new game with players: " + intersect);
-                        ConcurrentList<Player> players = new ConcurrentList<>();
-                        for (int i = intersect.size() - 1; i >= 0; i--) {
-                            System.out.println("Removing player " + intersect.get(i) + " from the normal queue");
-                            Player player = rankedQueue.remove(i);
-                            players.add(player);
-                            if (players.size() >= MAX_PLAYERS) {
-                                break;
-                            }
-                        }
-
-                        startGame(players, true);
-                    }
-                }
 
-                if (normalQueue.size() >= MAX_PLAYERS && activeGames.size() < MAX_GAMES) {
-                    System.out.println("Creating a new game with players: ");
-                    normalQueue.subList(0, MAX_PLAYERS).forEach(e -> System.out.print(e.getUsername() + " "));
-                    System.out.println();
+        Reactor[] reactors = new Reactor[REACTORS];
+        for (int i = 0; i < REACTORS; i++) {
+            reactors[i] = new Reactor(i, OUTBOUND_HIGH_WATER_MARK, HEARTBEAT_SECONDS * 1000L, IDLE_TIMEOUT_SECONDS * 1000L, OUTBOUND_RING_SIZE);
+            new Thread(reactors[i], "reactor-" + i).start();
+        }
 
-                    ConcurrentList<Player> players = new ConcurrentList<>();
-                    Iterator<Player> iterator = normalQueue.iterator();
-                    while (iterator.hasNext() && players.size() < MAX_PLAYERS) {
-                        Player player = iterator.next();
-                        normalQueue.remove(player); // remove the player from the queue
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            updateAllPlayers();
+            userStore.close();
+            logStats();
+        }));
+        queueScheduler.scheduleAtFixedRate(leaderboard::refresh, LEADERBOARD_REFRESH_MILLIS, LEADERBOARD_REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+        if (STATS_INTERVAL_SECONDS > 0) {
+            queueScheduler.scheduleAtFixedRate(Server::logStats, STATS_INTERVAL_SECONDS, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
 
-                        if (player.getAbsent()) {
-                            removeAbsentPlayer(player);
-                            continue;
-                        }
-                        players.add(player);
-                    }
+        System.out.println("Server is up and running with " + REACTORS + " reactors");
 
 
+        // the main thread only accepts, every connection is then owned by one reactor
+        long accepted = 0;
+        while (true) {
+            SocketChannel clientSocketChannel = serverSocketChannel.accept();
+            reactors[(int) (accepted++ % reactors.length)].register(clientSocketChannel);
+        }
+    }
 
-                    if (players.size() == MAX_PLAYERS) {
-                        startGame(players, false);
-                    }
-                }
+    private static AccountStore openAccountStore() throws IOException {
+        switch (STORE) {
+            case AccountStore.LOG:
+                return UserStore.load(Path.of(USERS_FILE), Path.of(USERS_LOG_FILE), PERSIST_BATCH_SIZE, PERSIST_INTERVAL_MILLIS, COMPACT_LOG_BYTES);
+            case AccountStore.MAPPED:
+                // convert an existing users.csv with main.server.AccountConverter
+                return MappedAccountStore.open(Path.of(USERS_DATA_FILE));
+            default:
+                throw new IllegalArgumentException("Unknown account store: " + STORE);
+        }
+    }
 
-                // Sleep for some time to avoid high CPU usage
-                try {
-                    sleep(1000);
-                } catch (InterruptedException e) {
-                    // Handle the exception
-                }
-            }
-        }).start();
+    private static BloomFilter buildUsernameFilter(AccountStore store) {
+        // room for the table to double before the false-positive rate climbs past 1%
+        BloomFilter filter = new BloomFilter(Math.max(2L * store.size(), 1 << 20), 0.01);
+        store.forEachUsername(filter::add);
+        return filter;
+    }
 
+    private static void loadLeaderboard(AccountStore store) {
+        store.forEachUsername(username -> {
+            UserRecord user = store.find(username);
+            if (user != null) {
+                leaderboard.update(username, user.getScore());
+            }
+        });
+        leaderboard.refresh();
+    }
 
-        while (true) {
+    private static void logStats() {
+        System.out.printf("Stats: %d players online, %d active games, %d usernames, username filter false-positive rate %.4f (expected %.4f), %s, %s%n",
+                onlineUsers.size(), activeGames.size(), knownUsernames.size(),
+                knownUsernames.falsePositiveRate(), knownUsernames.expectedFalsePositiveRate(), authWorkers.stats(),
+                profileCache == null ? "profile cache disabled" : profileCache.stats());
+    }
 
-            selector.select();
-            Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
-            while (keyIterator.hasNext()) {
-                SelectionKey key = keyIterator.next();
-                keyIterator.remove();
-
-                if (key.isAcceptable()) {
-                    SocketChannel clientSocketChannel = ((ServerSocketChannel) key.channel()).accept();
-                    clientSocketChannel.configureBlocking(false);
-                    clientSocketChannel.register(selector, SelectionKey.OP_READ);
-                    Player player = new Player(playerCount++, clientSocketChannel);
-                    unauthenticatedPlayers.add(player);
-                    sendMessageToPlayer(player, MessageType.AUTHENTICATION_REQUEST.toHeader());
-
-                } else if (key.isReadable()) {
-                    SocketChannel clientSocketChannel = (SocketChannel) key.channel();
-                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
-                    int bytesRead = -1;
-                    try {
-                        bytesRead = clientSocketChannel.read(buffer);
-                    }
-                    catch (SocketException e) {
-                        // Exceção não ocorreu ( quando ligação é terminada, bytesRead = -1 )
-                        // Handle the "Connection reset" exception
-                        handleDisconnection(key, clientSocketChannel, e);
-
-                    }
-                    catch (IOException e) {
-                        // Handle other I/O exceptions
-                        e.printStackTrace();
-                    }
-
-                    if (bytesRead != -1) {
-                        StringBuilder message = new StringBuilder();
-                        do {
-                            // attempt to read data from the socket channel
-                            // if no bytes were read, the connection has been lost
-                            if (bytesRead == -1) {
-                                throw new IOException("Socket channel connection lost.");
-                            }
-
-                            if (buffer.position() > 0) {
-                                // convert the buffer to a string and append it to the message
-                                message.append(new String(buffer.array(), 0, bytesRead));
-                                // if the message end character is found, exit the loop
-                                if (buffer.hasArray() && buffer.array()[buffer.position() - 1] == MESSAGE_TERMINATOR) {
-                                    break;
-                                }
-                                // clear the buffer to read more data
-                                buffer.clear();
-                            }
-                            bytesRead = clientSocketChannel.read(buffer);
-                        } while (true);
-
-                        if (message.length() > 0) {
-                            handleMessage(clientSocketChannel, String.valueOf(message));
-                        }
-                    } else {
-                        handleDisconnection(key, clientSocketChannel, new SocketException("Connection reset"));
-                    }
+    // runs on the queue scheduler whenever a player joins the normal queue or a game slot frees up
+    private static void matchNormalQueue() {
+        while (normalQueue.size() >= MAX_PLAYERS && activeGames.size() < MAX_GAMES) {
+            ConcurrentList<Player> players = new ConcurrentList<>();
+            Player player;
+            // players leaving the queue meanwhile are removed by their own thread and never polled
+            while (players.size() < MAX_PLAYERS && (player = normalQueue.poll()) != null) {
+                if (player.getAbsent()) {
+                    removeAbsentPlayer(player);
+                    continue;
                 }
+                players.add(player);
+            }
+
+            if (players.size() < MAX_PLAYERS || !startGame(players, false)) {
+                // not enough players left or lost the last game slot to the ranked matcher, back to the queue
+                normalQueue.addAll(players);
+                return;
             }
+            System.out.println("Created a normal game with players: " + players.getAll().stream().map(Player::getUsername).toList());
         }
     }
 
-    private static void handleDisconnection(SelectionKey key, SocketChannel clientSocketChannel, SocketException e) {
+    // called by the owning reactor once a new client is registered with its selector
+    static void handleConnection(Connection connection) {
+        SocketChannel clientSocketChannel = connection.getChannel();
+        connections.put(clientSocketChannel, connection);
+        Player player = new Player(playerCount.getAndIncrement(), clientSocketChannel);
+        connection.setPlayer(player);
+        unauthenticatedPlayers.add(player);
+        sendMessageToPlayer(player, MessageType.AUTHENTICATION_REQUEST.toHeader());
+    }
+
+    static void handleDisconnection(SelectionKey key, SocketChannel clientSocketChannel, SocketException e) {
         System.err.println("Connection reset by peer: " + e.getMessage());
         key.cancel();
         Player player = getPlayer(clientSocketChannel);
+        connections.remove(clientSocketChannel);
+        try {
+            clientSocketChannel.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
 
         if(player != null) {
             String username = player.getUsername();
             updatePlayerEntry(player);
-            if (player.isInQueue()) {
-                suspendPlayer(player);
+            if (unauthenticatedPlayers.contains(player)) {
+                removeUnauthenticatedPlayer(player);
+            }
+            else if (player.isInQueue()) {
+                suspendPlayer(player, ((Connection) key.attachment()).getReactor().getTimer());
             }
             else if (player.isInGame()) {
                 removePlayerFromGame(player);
@@ -230,55 +233,65 @@ public class Server {
         }
     }
 
-    private static void startGame(ConcurrentList<Player> players, boolean ranked) {
+    // returns false, leaving the players untouched, if every game slot is taken
+    static boolean startGame(ConcurrentList<Player> players, boolean ranked) {
+        if (!reserveGameSlot()) {
+            return false;
+        }
+
         for (Player player : players) {
             player.notifyGameStart();
         }
 
-        Game game = new Game(getAndIncrementGameCount(), players, ranked, getAvailableThreadPoolPlayer());
+        // games have no thread of their own, the state machine is driven by guesses and deadlines
+        Game game = new Game(getAndIncrementGameCount(), players, ranked);
         activeGames.add(game);
+        for (Player player : players) {
+            playerGames.put(player, game);
+        }
+        dispatchGameEvent(game::start);
+        return true;
+    }
 
-        CompletableFuture<Void> future = CompletableFuture.runAsync(game, threadPool);
-        future.whenComplete((result, exception) -> {
-            if (exception == null) {
-                System.out.println("Game " + game.getId() + " finished");
-                endGame(game);
-            } else {
-                // Handle exception
-                exception.printStackTrace();
-            }
-        });
+    // game events run on the executor picked with server.gameExecutor
+    public static void dispatchGameEvent(Runnable event) {
+        gameExecutor.execute(event);
     }
 
-    private static ExecutorService getAvailableThreadPoolPlayer() {
-        int availableThreadPoolIndex;
-        synchronized (threadPoolPlayersAvailability) {
-            availableThreadPoolIndex = findFirst(threadPoolPlayersAvailability,  true);
-            if (availableThreadPoolIndex == -1) {
-                System.out.println("No available thread pool");
-                return null;
-            }
-            threadPoolPlayersAvailability.set(availableThreadPoolIndex, false);
+    private static synchronized boolean reserveGameSlot() {
+        if (reservedGames >= MAX_GAMES) {
+            return false;
         }
-        return threadPoolPlayers.get(availableThreadPoolIndex);
+        reservedGames++;
+        return true;
+    }
+
+    private static synchronized void releaseGameSlot() {
+        reservedGames--;
     }
 
 
     public static void handleMessage(SocketChannel clientSocketChannel, String message) {
 
-        if (getPlayer(clientSocketChannel) != null) {
-            System.out.println("\nReceived message from player " + getPlayer(clientSocketChannel).getUsername() + ": " + message);
+        Player player = getPlayer(clientSocketChannel);
+        if (player != null) {
+            System.out.println("\nReceived message from player " + player.getUsername() + ": " + message);
         }
         else {
             System.out.println("\nReceived message from unauthenticated player: " + message);
         }
-        message = message.substring(0, message.length() - 1).trim(); // Remove message terminator
-        
+        message = message.trim(); // the decoder already strips the message terminator
+
         switch (Helper.parseMessageType(message)) {
             case GAME_GUESS -> handleGuessMessage(clientSocketChannel, Helper.parseMessage(message));
             case AUTHENTICATION_ATTEMPT -> handleAuthentication(clientSocketChannel, Helper.parseMessage(message));
             case AUTHENTICATION_ATTEMPT_TOKEN -> handleAuthenticationToken(clientSocketChannel, Helper.parseMessage(message));
             case GAME_MODE_RESPONSE -> handleGameModeResponse(clientSocketChannel, Helper.parseMessage(message));
+            case LEADERBOARD_REQUEST -> handleLeaderboardRequest(clientSocketChannel, Helper.parseMessage(message));
+            case RANK_REQUEST -> handleRankRequest(clientSocketChannel);
+            case KEEP_ALIVE -> {
+                // a client's echo of our ping, reading it already marked the connection as alive
+            }
             case DEFAULT ->
                 // Handle invalid message format or unsupported type
                     System.err.println("Invalid message format or unsupported type: " + message);
@@ -289,32 +302,30 @@ public class Server {
 
     private static void handleGameModeResponse(SocketChannel clientSocketChannel, String parseMessage) {
         Player player = getUnauthenticatedPlayer(clientSocketChannel);
+        if (player == null || !player.isAuthenticated()) {
+            return;
+        }
 
         if(parseMessage.equals("1")) {
             unauthenticatedPlayers.remove(player);
-            if(player != null) {
-                normalQueue.add(player);
-                sendMessageToPlayer(player, MessageType.INFO.toHeader() + "You have selected simple mode.\n" +
-                        "Waiting for other players to join...\n" +
-                        "Players in queue: " + normalQueue.size() + "\n");
-                player.startWaitTimer();
-            }
+            player.startWaitTimer();
+            normalQueue.add(player);
+            sendMessageToPlayer(player, MessageType.INFO.toHeader() + "You have selected simple mode.\n" +
+                    "Waiting for other players to join...\n" +
+                    "Players in queue: " + normalQueue.size() + "\n");
+            queueScheduler.execute(Server::matchNormalQueue);
         }
         else if(parseMessage.equals("2")) {
             unauthenticatedPlayers.remove(player);
-            if(player != null) {
-                rankedQueue.add(player);
-                sendMessageToPlayer(player, MessageType.INFO.toHeader() + "You have selected ranked mode.\n" +
-                        "Waiting for other players to join...\n" +
-                        "Players in queue: " + rankedQueue.size() + "\n");
-                player.startWaitTimer();
-            }
+            player.startWaitTimer();
+            rankedQueue.add(player);
+            sendMessageToPlayer(player, MessageType.INFO.toHeader() + "You have selected ranked mode.\n" +
+                    "Waiting for other players to join...\n" +
+                    "Players in queue: " + rankedQueue.size() + "\n");
         }
         else if(parseMessage.equals("quit")) {
             unauthenticatedPlayers.remove(player);
-            if (player != null) {
-                removePlayerFromServer(player);
-            }
+            removePlayerFromServer(player);
         }
         else {
             sendMessage(clientSocketChannel, MessageType.GAME_MODE_REQUEST.toHeader() + "Invalid game mode.");
@@ -322,6 +333,58 @@ public class Server {
 
     }
 
+    // answered from the leaderboard's last snapshot, then the player is asked for a game mode again
+    private static void handleLeaderboardRequest(SocketChannel clientSocketChannel, String parseMessage) {
+        Player player = getUnauthenticatedPlayer(clientSocketChannel);
+        if (player == null || !player.isAuthenticated()) {
+            return;
+        }
+
+        int count = LEADERBOARD_DEFAULT_ENTRIES;
+        try {
+            if (!parseMessage.isBlank()) {
+                count = Math.max(1, Math.min(Integer.parseInt(parseMessage.trim()), LEADERBOARD_MAX_ENTRIES));
+            }
+        }
+        catch (NumberFormatException ignored) {
+            // keep the default
+        }
+
+        StringBuilder board = new StringBuilder("Leaderboard:");
+        int rank = 1;
+        for (Leaderboard.Entry entry : leaderboard.top(count)) {
+            board.append("\n").append(rank++).append(". ").append(entry.getUsername()).append(" - ").append(entry.getScore());
+        }
+        sendMessageToPlayer(player, MessageType.INFO.toHeader() + board);
+        sendGameModeRequest(player);
+    }
+
+    private static void handleRankRequest(SocketChannel clientSocketChannel) {
+        Player player = getUnauthenticatedPlayer(clientSocketChannel);
+        if (player == null || !player.isAuthenticated()) {
+            return;
+        }
+
+        int rank = leaderboard.rank(player.getUsername());
+        Leaderboard.Entry entry = leaderboard.find(player.getUsername());
+        if (rank == 0 || entry == null) {
+            sendMessageToPlayer(player, MessageType.INFO.toHeader() + "You are not on the leaderboard yet.");
+        }
+        else {
+            sendMessageToPlayer(player, MessageType.INFO.toHeader() + "Your rank is " + rank + " of " + leaderboard.size() + " with " + entry.getScore() + " points.");
+        }
+        sendGameModeRequest(player);
+    }
+
+    private static void sendGameModeRequest(Player player) {
+        sendMessageToPlayer(player, MessageType.GAME_MODE_REQUEST.toHeader() + "Please choose a matchmaking option: \n" +
+                "1. Normal\n" +
+                "2. Ranked\n" +
+                "Type 'top [n]' to see the leaderboard or 'rank' to see your rank\n" +
+                "Type 'quit' to leave the game"
+        );
+    }
+
     private static void removePlayerFromServer(Player player) {
         removePlayer(player);
         updatePlayerEntry(player);
@@ -333,32 +396,24 @@ public class Server {
         String[] tokens = parseMessage.split(";");
         String sessionToken = tokens[0];
 
-        //iterate waitQueue and find the player with the sessionToken
-        if (findPlayerInQueue(clientSocketChannel, sessionToken, normalQueue)) return;
-        if (findPlayerInQueue(clientSocketChannel, sessionToken, rankedQueue)) return;
-
-        //in case the player was not found in the waitQueue
-        sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader() + "Invalid session token.");
-    }
+        // only players who disconnected while queued and are still within their grace period hold a valid token
+        Player player = sessionTokens.claim(sessionToken);
+        if (player == null || !player.isInQueue()) {
+            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader() + "Invalid session token.");
+            return;
+        }
 
-    private static boolean findPlayerInQueue(SocketChannel clientSocketChannel, String sessionToken, ConcurrentList<Player> queue) {
-        for(Player player : queue) {
-            if(player.getSessionToken().equals(sessionToken)) {
-                if(player.getAbsent()) {
-                    unsuspendPlayer(player);
-                    player.setSocketChannel(clientSocketChannel);
-                    //add player to authenticatedPlayers
-                    //send message to player
-                    sendMessageToPlayer(player, MessageType.AUTHENTICATION_SUCCESSFUL.toHeader());
-                    sendMessageToPlayer(player, MessageType.INFO.toHeader() + "Successfully rejoined the wait queue.");
-                }
-                else {
-                    sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader() + "Player is already in the wait queue.");
-                }
-                return true;
-            }
+        unsuspendPlayer(player);
+        // the rejoining player replaces the placeholder created for this connection
+        Player placeholder = getPlayer(clientSocketChannel);
+        if (placeholder != null) {
+            unauthenticatedPlayers.remove(placeholder);
         }
-        return false;
+        player.setSocketChannel(clientSocketChannel);
+        bindPlayer(clientSocketChannel, player);
+        //send message to player
+        sendMessageToPlayer(player, MessageType.AUTHENTICATION_SUCCESSFUL.toHeader());
+        sendMessageToPlayer(player, MessageType.INFO.toHeader() + "Successfully rejoined the wait queue.");
     }
 
     public static void handleGuessMessage(SocketChannel clientSocketChannel, String message) {
@@ -390,30 +445,25 @@ public class Server {
             return;
         }
 
-        notifyGuessReceived(game, player, guess);
-    }
-
-    private static void notifyGuessReceived(Game game, Player player, int guess) {
-        game.setPlayerGuess(player, guess);
-        game.signalGuessReceived(player);
+        dispatchGameEvent(() -> game.setPlayerGuess(player, guess));
     }
 
-    private static void endGame(Game game) {
+    // called once by the game when its last round is over or every player left
+    public static void endGame(Game game) {
         activeGames.remove(game);
-        int threadPoolIndex = threadPoolPlayers.indexOf(game.getThreadPoolPlayers());
-        threadPoolPlayersAvailability.set(threadPoolIndex, true);
+        releaseGameSlot();
 
         for (Player p : game.getPlayers()) {
+            playerGames.remove(p);
             p.notifyGameOver();
+            updatePlayerEntry(p);
             sendMessageToPlayer(p,MessageType.GAME_END.toHeader() + "Game Ended\n");
             unauthenticatedPlayers.add(p);
-            sendMessageToPlayer(p, MessageType.GAME_MODE_REQUEST.toHeader() +
-                    "Please choose a matchmaking option: \n" +
-                    "1. Normal\n" +
-                    "2. Ranked\n" +
-                    "Type 'quit' to leave the game"
-            );
+            sendGameModeRequest(p);
         }
+        // a game slot was freed
+        rankedQueue.poke();
+        queueScheduler.execute(Server::matchNormalQueue);
     }
 
     private static void handleAuthentication(SocketChannel clientSocketChannel, String parseMessage) {
@@ -430,26 +480,48 @@ public class Server {
             return;
         }
 
-        //check that the player is not currently loggedIn
-        if(isLoggedIn(username)){
-            sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "The user is already logged in.");
-            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
+        if (!UserRecord.isValidUsername(username)) {
+            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader() + "Usernames can not be empty or contain commas.");
             return;
         }
 
-        boolean loginFinished = login(username , password, clientSocketChannel);
+        Player player = getUnauthenticatedPlayer(clientSocketChannel);
+        Connection connection = connections.get(clientSocketChannel);
+        if (player == null || player.isAuthenticated() || connection == null) {
+            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader() + "Already authenticated.");
+            return;
+        }
+        if (connection.isAuthenticating()) {
+            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader() + "Authentication already in progress.");
+            return;
+        }
 
-        if (!loginFinished) {
-            register(username, password, clientSocketChannel);
+        //check that the player is not currently loggedIn, reserving the username in the same step
+        if(!claimUsername(username, player)){
+            sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "The user is already logged in.");
+            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
+            return;
         }
 
+        // hashing and the account store run on the auth workers, the result is applied back on this reactor
+        connection.setAuthenticating(true);
+        long receivedAt = Clock.now();
+        boolean accepted = authWorkers.submit(() -> {
+            AuthResult result = authenticate(username, password);
+            connection.getReactor().execute(() -> {
+                connection.setAuthenticating(false);
+                authWorkers.recordLatency(Clock.now() - receivedAt);
+                completeAuthentication(connection, player, username, result);
+            });
+        });
+        if (!accepted) {
+            connection.setAuthenticating(false);
+            releaseUsername(username, player);
+            sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "The server is busy. Please try again.");
+            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
+        }
     }
 
-    private static void removePlayer(SocketChannel clientSocketChannel) {
-        // Remove the player from the wait queue or active game
-        Player player = getPlayer(clientSocketChannel);
-        removePlayer(player);
-    }
     private static void removePlayer(Player player) {
         // Remove the player from the wait queue or active game
         if (player != null) {
@@ -463,16 +535,18 @@ public class Server {
 
     private static void removePlayerFromGame(Player player) {
         Game game = getGame(player);
+        playerGames.remove(player);
+        releaseUsername(player.getUsername(), player);
         if (game != null) {
-            game.signalDisconnected(player);
+            game.removePlayer(player);
             sendMessageToPlayers(game, MessageType.INFO.toHeader() + "Player " + player.getUsername() + " has left the game");
-            if (game.getPlayers().size() == 0) {
-                activeGames.remove(game);
-            }
+            dispatchGameEvent(() -> game.signalDisconnected(player));
         }
     }
-    private static void removeAbsentPlayer(Player player){
+    static void removeAbsentPlayer(Player player){
         if (player != null) {
+            sessionTokens.revoke(player);
+            releaseUsername(player.getUsername(), player);
             player.setInGame(false);
             player.setInQueue(false);
         }
@@ -480,100 +554,79 @@ public class Server {
 
     private static void removeUnauthenticatedPlayer(Player player) {
         unauthenticatedPlayers.remove(player);
+        releaseUsername(player.getUsername(), player);
     }
 
-    private static void suspendPlayer(Player player){
+    private static void suspendPlayer(Player player, HashedWheelTimer timer){
         player.setAbsent(true);
+        sessionTokens.suspend(player, timer);
+    }
+
+    // the grace period of a player who disconnected while queued ran out
+    private static void expireSession(Player player) {
+        normalQueue.remove(player);
+        rankedQueue.remove(player);
+        removeAbsentPlayer(player);
+        System.err.println("Session of player " + player.getUsername() + " expired");
     }
 
     private static void unsuspendPlayer(Player player){
         player.setAbsent(false);
     }
 
+    private static String userKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
     private static boolean isLoggedIn(String username){
-        for (Player player: normalQueue){
-            if (player.getUsername().equalsIgnoreCase(username)) {
-                return true;
-            }
-        }
-        for(Player player: rankedQueue){
-            if (player.getUsername().equalsIgnoreCase(username)){
-                return true;
-            }
-        }
-        for (Game game: activeGames){
-            for (Player player: game.getPlayers()){
-                if (player.getUsername().equalsIgnoreCase(username)){
-                    return true;
-                }
-            }
-        }
-        for (Player player: unauthenticatedPlayers){
-            if (player.getUsername().equalsIgnoreCase(username)){
-                return true;
-            }
-        }
+        return onlineUsers.containsKey(userKey(username));
+    }
 
-        return false;
+    // atomically marks the username as online for this player, false if it is already taken
+    private static boolean claimUsername(String username, Player player) {
+        return onlineUsers.putIfAbsent(userKey(username), player) == null;
     }
 
+    private static void releaseUsername(String username, Player player) {
+        onlineUsers.remove(userKey(username), player);
+    }
+
+    // O(1) lookup through the connection registry, the player is bound to its connection on accept and on rejoin
     private static Player getPlayer(SocketChannel clientSocketChannel) {
-        for (Player player : normalQueue) {
-            if (player.getSocketChannel() == clientSocketChannel) {
-                return player;
-            }
-        }
-        for (Player player : rankedQueue) {
-            if (player.getSocketChannel() == clientSocketChannel) {
-                return player;
-            }
-        }
-        for (Game game : activeGames) {
-            for (Player player : game.getPlayers()) {
-                if (player.getSocketChannel() == clientSocketChannel) {
-                    return player;
-                }
-            }
-        }
-        for (Player player : unauthenticatedPlayers) {
-            if (player.getSocketChannel() == clientSocketChannel) {
-                return player;
-            }
-        }
-        return null;
+        Connection connection = connections.get(clientSocketChannel);
+        return connection != null ? connection.getPlayer() : null;
     }
 
-    private static Player getPlayerFromQueue(SocketChannel clientSocketChannel) {
-        for (Player player : normalQueue) {
-            if (player.getSocketChannel() == clientSocketChannel) {
-                return player;
-            }
+    private static void bindPlayer(SocketChannel clientSocketChannel, Player player) {
+        Connection connection = connections.get(clientSocketChannel);
+        if (connection != null) {
+            connection.setPlayer(player);
         }
-        for (Player player : rankedQueue) {
-            if (player.getSocketChannel() == clientSocketChannel) {
-                return player;
-            }
-        }
-        return null;
     }
 
     private static Player getUnauthenticatedPlayer(SocketChannel clientSocketChannel) {
-        for (Player player : unauthenticatedPlayers) {
-            if (player.getSocketChannel() == clientSocketChannel) {
-                return player;
-            }
-        }
-        return null;
+        Player player = getPlayer(clientSocketChannel);
+        return player != null && unauthenticatedPlayers.contains(player) ? player : null;
     }
 
 
     public static Game getGame(Player player) {
-        for (Game game : activeGames) {
-            if (game.getPlayers().contains(player)) {
-                return game;
-            }
+        return playerGames.get(player);
+    }
+
+    public static int getGuessTimeoutSeconds() {
+        return GUESS_TIMEOUT_SECONDS;
+    }
+
+    // schedules the task on the timing wheel of the reactor owning the player's connection,
+    // returns null if the player is not connected
+    public static HashedWheelTimer.Timeout scheduleForPlayer(Player player, Runnable task, long delay, TimeUnit unit) {
+        SocketChannel channel = player.getSocketChannel();
+        Connection connection = channel == null ? null : connections.get(channel);
+        if (connection == null) {
+            return null;
         }
-        return null;
+        return connection.getReactor().getTimer().newTimeout(task, delay, unit);
     }
 
     public static void sendMessageToPlayers(Game game, String message) {
@@ -583,20 +636,15 @@ public class Server {
         }
     }
 
+    // queues the message on the client's connection, the selector thread writes it once the socket is writable
     public static void sendMessage(SocketChannel clientSocketChannel, String message) {
-        try {
-            message += MESSAGE_TERMINATOR;
-            ByteBuffer buffer = ByteBuffer.wrap(message.getBytes());
-            //append \t to the end of the message
-            clientSocketChannel.write(buffer);
-            while (buffer.hasRemaining()) {
-                clientSocketChannel.write(buffer);
-            }
-
-            // Clear the buffer after all data has been written
-            buffer.clear();
-        } catch (IOException e) {
-            removePlayer(clientSocketChannel);
+        // players without a channel (the benchmarks' players) have nothing to send to
+        if (clientSocketChannel == null) {
+            return;
+        }
+        Connection connection = connections.get(clientSocketChannel);
+        if (connection != null) {
+            connection.send(message);
         }
     }
 
@@ -612,168 +660,98 @@ public class Server {
         return ++gameCount;
     }
 
-    public static List<Integer> findEligibleOpponents(Player player, ConcurrentList<Player> players){
-        List<Integer> eligibleOpponents = new ArrayList<>();
-        for(int i = 0; i < players.size(); i++){
-            Player opponent = players.get(i);
-            if (Math.abs(opponent.getScore() - player.getScore()) <= (ratio * player.getWaitingTime())) {
-                eligibleOpponents.add(i);
-            }
-        }
-        return eligibleOpponents;
+    // runs on an auth worker: a known username is a login attempt, any other is registered
+    private static AuthResult authenticate(String username, String password) {
+        AuthResult result = login(username, password);
+        return result != null ? result : register(username, password);
     }
 
-    public static boolean login(String username, String password, SocketChannel clientSocketChannel) {
-        // Acquire the lock for reading
-        databaseLock.readLock().lock();
-        String csvFile = "users.csv";
-        boolean loginSuccessful = false;
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
-            String line;
-            boolean headerLine = true;
-            while ((line = reader.readLine()) != null) {
-                if(headerLine){
-                    headerLine = false;
-                    continue;
-                }
-                String[] fields = line.split(",");
-                String csvUsername = fields[0];
-                String csvPassword = fields[1];
-                int csvScore = Integer.parseInt(fields[2]);
-                int csvGamesPlayed = Integer.parseInt(fields[3]);
-
-                if (csvUsername.equals(username)) {
-                    if (Helper.verifyPassword(password, csvPassword)) {
-                        sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "Successfully logged in.");
-                        sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_SUCCESSFUL.toHeader());
-
-                        Player player = getUnauthenticatedPlayer(clientSocketChannel);
-                        assert player != null;
-                        player.setUsername(username);
-                        player.setScore(csvScore);
-                        player.setGamesPlayed(csvGamesPlayed);
-                        String newSessionToken = Helper.generateSessionToken();
-                        player.setSessionToken(newSessionToken);
-                        sendMessageToPlayer(player, MessageType.INFO.toHeader() + "Here is your session token: " + newSessionToken
-                                + "\n   Please use this token to reconnect to the server."); // do not use tab as it is the MESSAGE_TERMINATOR
-
-
-                        player.startWaitTimer();
-
-                        // Choose matchmaking
-                        sendMessageToPlayer(player, MessageType.GAME_MODE_REQUEST.toHeader() + "Please choose a matchmaking option: \n" +
-                                "1. Normal\n" +
-                                "2. Ranked\n" +
-                                "Type 'quit' to leave the game"
-                        );
-                        loginSuccessful = true;
-                        break;
-                    }
-                    else {
-                        // Password incorrect
-                        sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "Incorrect password. Please try again.");
-                        sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
-                        loginSuccessful = false;
-                        break;
-                    }
-                }
-            }        }
-        catch (IOException e) {
-            System.err.println("Error reading CSV file: " + e.getMessage());
-            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
-            loginSuccessful = false;
-        } finally {
-            databaseLock.readLock().unlock();
+    // returns null if the username is unknown
+    private static AuthResult login(String username, String password) {
+        // a username the filter has never seen is definitely new
+        if (!knownUsernames.mightContain(username)) {
+            return null;
+        }
+        UserRecord user = userStore.find(username);
+        if (user == null) {
+            knownUsernames.reportFalsePositive();
+            return null;
+        }
+        if (!userStore.passwordMatches(username, Helper.digestPassword(password))) {
+            return new AuthResult(AuthResult.Outcome.WRONG_PASSWORD, user);
         }
-        return loginSuccessful;
+        return new AuthResult(AuthResult.Outcome.LOGGED_IN, user);
     }
 
-    public static void register(String username, String password, SocketChannel clientSocketChannel) {
-        // Acquire the lock for writing
-        databaseLock.writeLock().lock();
-        String csvFile = "users.csv";
-        try (FileWriter writer = new FileWriter(csvFile, true)) {
-            String hashedPassword = Helper.hashPassword(password);
-            String newSessionToken = Helper.generateSessionToken();
-
-            String newLine = username + "," + hashedPassword + "," + 0 + "," + 0 + "\n";
-            writer.write(newLine);
-
-            Player player = getUnauthenticatedPlayer(clientSocketChannel);
-            assert player != null;
-            player.setUsername(username);
-            player.setScore(0);
-            player.setGamesPlayed(0);
-            player.setSessionToken(newSessionToken);
+    private static AuthResult register(String username, String password) {
+        UserRecord user = userStore.register(username, Helper.hashPassword(password));
+        if (user == null) {
+            // registered by someone else since the lookup, or not storable
+            return new AuthResult(AuthResult.Outcome.UNAVAILABLE, null);
+        }
+        knownUsernames.add(username);
+        leaderboard.update(username, 0);
+        return new AuthResult(AuthResult.Outcome.REGISTERED, user);
+    }
 
-            sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "Successfully registered as a new user.");
-            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_SUCCESSFUL.toHeader());
-            player.startWaitTimer();
+    // runs on the connection's reactor once the auth workers are done with the attempt
+    private static void completeAuthentication(Connection connection, Player player, String username, AuthResult result) {
+        SocketChannel clientSocketChannel = connection.getChannel();
+        if (!connection.getKey().isValid() || connection.getPlayer() != player) {
+            // the client left while the attempt was with the workers
+            releaseUsername(username, player);
+            return;
+        }
 
-            // Choose matchmaking
-            sendMessageToPlayer(player, MessageType.GAME_MODE_REQUEST.toHeader() + "Please choose a matchmaking option: \n" +
-                    "1. Normal\n" +
-                    "2. Ranked\n" +
-                    "Type 'quit' to leave the game"
-            );
+        switch (result.outcome) {
+            case WRONG_PASSWORD -> {
+                // Password incorrect
+                releaseUsername(username, player);
+                sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "Incorrect password. Please try again.");
+                sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
+            }
+            case UNAVAILABLE -> {
+                releaseUsername(username, player);
+                sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + "This username is not available.");
+                sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
+            }
+            case LOGGED_IN, REGISTERED -> {
+                boolean registered = result.outcome == AuthResult.Outcome.REGISTERED;
+                sendMessage(clientSocketChannel, MessageType.INFO.toHeader() + (registered ? "Successfully registered as a new user." : "Successfully logged in."));
+                sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_SUCCESSFUL.toHeader());
+
+                player.setUsername(username);
+                player.setAuthenticated(true);
+                player.setScore(result.user.getScore());
+                player.setGamesPlayed(result.user.getGamesPlayed());
+                String newSessionToken = Helper.generateSessionToken();
+                player.setSessionToken(newSessionToken);
+                if (!registered) {
+                    sendMessageToPlayer(player, MessageType.INFO.toHeader() + "Here is your session token: " + newSessionToken
+                            + "\n   Please use this token to reconnect to the server."); // do not use tab as it is the MESSAGE_TERMINATOR
+                }
 
-        } catch (IOException e) {
-            System.err.println("Error writing to CSV file: " + e.getMessage());
-            sendMessage(clientSocketChannel, MessageType.AUTHENTICATION_FAILURE.toHeader());
-        } finally {
-            // Release the lock after writing
-            databaseLock.writeLock().unlock();
+                // Choose matchmaking
+                sendGameModeRequest(player);
+            }
         }
     }
 
-    //function that updates the file, uses the lock. the function receives a player and updates the file with the new score and games played
-
+    // records the player's new score and games played in the account store
     public static void updatePlayerEntry(Player player){
         if (!player.getUpdated()){
             return;
         }
         player.setUpdated(false);
-        databaseLock.readLock().lock();
-        String csvFile = "users.csv";
-        boolean found = false;
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
-            String line;
-            boolean headerLine = true;
-            while ((line = reader.readLine()) != null) {
-                if (headerLine){
-                    headerLine = false;
-                    continue;
-                }
-                String[] fields = line.split(",");
-                String csvUsername = fields[0];
-                String csvPassword = fields[1];
-
-                if (csvUsername.equals(player.getUsername())) {
-                    found = true;
-                    databaseLock.readLock().unlock();
-                    databaseLock.writeLock().lock();
-                    String newLine = csvUsername + "," + csvPassword + "," + player.getScore() + "," + player.getGamesPlayed();
-                    Path path = Path.of(csvFile);
-                    String fileContent = Files.readString(path);
-                    fileContent = fileContent.replace(line, newLine);
-                    Files.writeString(path, fileContent);
-                    databaseLock.writeLock().unlock();
-                    break;
-                }
-            }
-        }
-        catch (IOException e) {
-            System.err.println("Error reading CSV file: " + e.getMessage());
-        } finally {
-            //if locked, unlock
-            if (!found){
-                databaseLock.readLock().unlock();
-            }
+        // the store is opened by main(), games run without it (the benchmarks) only keep scores in memory
+        if (userStore != null) {
+            userStore.update(player.getUsername(), player.getScore(), player.getGamesPlayed());
         }
+        leaderboard.update(player.getUsername(), player.getScore());
     }
 
     //function that creates a set of all the players that are in the waitQueue or are in the games and that have the player.wasUpdated() flag set to true
-    //the function then updates the file with the new score and games played for each player in the set
+    //the function then hands them to the user store, whose close() writes them in a single flush
 
     public static void updateAllPlayers(){
         Set<Player> playersToUpdate = new HashSet<>();
@@ -798,4 +776,22 @@ public class Server {
             updatePlayerEntry(player);
         }
     }
-}
\ No newline at end of file
+
+    // what an auth worker found out about an authentication attempt
+    private static class AuthResult {
+        private enum Outcome {
+            LOGGED_IN,
+            REGISTERED,
+            WRONG_PASSWORD,
+            UNAVAILABLE
+        }
+
+        private final Outcome outcome;
+        private final UserRecord user;
+
+        AuthResult(Outcome outcome, UserRecord user) {
+            this.outcome = outcome;
+            this.user = user;
+        }
+    }
+}
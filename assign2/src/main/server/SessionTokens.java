@@ -0,0 +1,73 @@
+package main.server;
+
+import main.game.Player;
+import main.utils.ConcurrentHashMap;
+import main.utils.HashedWheelTimer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Session tokens of the players who disconnected while queued, so a reconnecting client can take its
+// place back in O(1). A token is valid for the grace period after the disconnection, then the player
+// is purged from the queues without waiting for a matchmaker to come across it.
+// Each suspension ends exactly once: claimed by a rejoin, revoked by a matchmaker, or expired.
+public class SessionTokens {
+    private final ConcurrentHashMap<String, Suspension> suspended = new ConcurrentHashMap<>();
+    private final long graceMillis;
+    private final Consumer<Player> onExpired;
+
+    public SessionTokens(long graceMillis, Consumer<Player> onExpired) {
+        this.graceMillis = graceMillis;
+        this.onExpired = onExpired;
+    }
+
+    // the expiry runs on the given timer's owner thread
+    public void suspend(Player player, HashedWheelTimer timer) {
+        String token = player.getSessionToken();
+        Suspension suspension = new Suspension(player);
+        suspended.put(token, suspension);
+        suspension.expiry = timer.newTimeout(() -> {
+            if (suspended.remove(token, suspension)) {
+                onExpired.accept(player);
+            }
+        }, graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // returns the suspended player holding the token, or null if there is none
+    public Player claim(String token) {
+        // the conditional remove decides between a rejoin and the expiry or a matchmaker
+        Suspension suspension = suspended.get(token);
+        if (suspension == null || !suspended.remove(token, suspension)) {
+            return null;
+        }
+        suspension.cancel();
+        return suspension.player;
+    }
+
+    // returns false if the player's suspension already ended
+    public boolean revoke(Player player) {
+        String token = player.getSessionToken();
+        Suspension suspension = token == null ? null : suspended.get(token);
+        if (suspension == null || suspension.player != player || !suspended.remove(token, suspension)) {
+            return false;
+        }
+        suspension.cancel();
+        return true;
+    }
+
+    private static class Suspension {
+        private final Player player;
+        private volatile HashedWheelTimer.Timeout expiry;
+
+        Suspension(Player player) {
+            this.player = player;
+        }
+
+        void cancel() {
+            HashedWheelTimer.Timeout timeout = expiry;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package main.server;
+
+// One registered account as held by the user store.
+// Score and games played change as games end, the credentials never do.
+// The password hash is null for records read from a store that checks passwords itself (MappedAccountStore).
+public class UserRecord {
+    private final String username;
+    private final String passwordHash;
+    private int score;
+    private int gamesPlayed;
+
+    public UserRecord(String username, String passwordHash, int score, int gamesPlayed) {
+        this.username = username;
+        this.passwordHash = passwordHash;
+        this.score = score;
+        this.gamesPlayed = gamesPlayed;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public synchronized int getScore() {
+        return score;
+    }
+
+    public synchronized int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public synchronized void update(int score, int gamesPlayed) {
+        this.score = score;
+        this.gamesPlayed = gamesPlayed;
+    }
+
+    // users.csv line: username,password,score,gamesPlayed
+    public synchronized String toCsvLine() {
+        return username + "," + passwordHash + "," + score + "," + gamesPlayed;
+    }
+
+    // usernames are a field of users.csv and users.log lines, so they can not hold their separators
+    public static boolean isValidUsername(String username) {
+        if (username == null || username.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c == ',' || c == '\n' || c == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // returns null for lines that are not a valid account
+    public static UserRecord fromCsvLine(String line) {
+        String[] fields = line.split(",");
+        if (fields.length != 4) {
+            return null;
+        }
+        try {
+            return new UserRecord(fields[0], fields[1], Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
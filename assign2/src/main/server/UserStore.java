@@ -0,0 +1,360 @@
+package main.server;
+
+import main.utils.ConcurrentHashMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Every account, loaded once at startup and indexed by username. Lookups never touch the disk.
+//
+// On disk the accounts are a snapshot (users.csv) plus an append-only log (users.log) of the
+// registrations and score updates made since. Startup loads the snapshot and replays the log.
+// Changes are applied to the index right away and written behind: new and dirty accounts are
+// collected, each account at most once, and a single background thread appends them to the log
+// as one fsynced write when the batch is full or the flush interval passes. Once the log grows
+// past the compaction threshold that thread folds it into a new snapshot and empties it.
+//
+// Every log record carries a CRC32 of its content, replay stops at the first record whose checksum
+// fails, which can only be the tail left by a crash in the middle of an append. A record that
+// passes its checksum but can not be applied is skipped.
+public class UserStore implements AccountStore {
+    private static final String HEADER = "username,password,score,gamesPlayed";
+    private static final String REGISTER = "R";
+    private static final String UPDATE = "U";
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final ConcurrentHashMap<String, UserRecord> index = new ConcurrentHashMap<>();
+    // snapshot order of the accounts, only touched by the persister thread once loaded
+    private final List<UserRecord> records = new ArrayList<>();
+    private final ScheduledExecutorService persister = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "user-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int batchSize;
+    private final long compactLogBytes;
+    private FileChannel log;
+
+    // the pending batch, guarded by this
+    private List<UserRecord> registered = new ArrayList<>();
+    private final Set<UserRecord> dirty = new LinkedHashSet<>();
+    private boolean flushRequested = false;
+    // a failed append may leave a torn record mid-log, the next flush snapshots everything instead
+    private boolean compactNeeded = false;
+
+    private UserStore(Path snapshotFile, Path logFile, int batchSize, long compactLogBytes) {
+        this.snapshotFile = snapshotFile;
+        this.logFile = logFile;
+        this.batchSize = Math.max(batchSize, 1);
+        this.compactLogBytes = compactLogBytes;
+    }
+
+    public static UserStore load(Path snapshotFile, Path logFile, int batchSize, long flushIntervalMillis, long compactLogBytes) throws IOException {
+        UserStore store = new UserStore(snapshotFile, logFile, batchSize, compactLogBytes);
+        store.loadSnapshot();
+        store.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int replayed = store.replayLog();
+        System.out.println("Loaded " + store.records.size() + " users from " + snapshotFile + " and " + replayed + " records from " + logFile);
+        store.persister.scheduleWithFixedDelay(store::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    @Override
+    public UserRecord find(String username) {
+        return index.get(username);
+    }
+
+    // returns null if the username is already taken or could not be written as a record
+    @Override
+    public UserRecord register(String username, String passwordHash) {
+        if (!UserRecord.isValidUsername(username)) {
+            return null;
+        }
+        UserRecord record = new UserRecord(username, passwordHash, 0, 0);
+        if (index.putIfAbsent(username, record) != null) {
+            return null;
+        }
+        synchronized (this) {
+            registered.add(record);
+            requestFlushIfFull();
+        }
+        return record;
+    }
+
+    @Override
+    public void update(String username, int score, int gamesPlayed) {
+        UserRecord record = index.get(username);
+        if (record == null) {
+            return;
+        }
+        record.update(score, gamesPlayed);
+        synchronized (this) {
+            // an account updated several times before a flush is written once
+            dirty.add(record);
+            requestFlushIfFull();
+        }
+    }
+
+    @Override
+    public int size() {
+        return onPersister(() -> {
+            synchronized (this) {
+                return records.size() + registered.size();
+            }
+        });
+    }
+
+    @Override
+    public void forEachUsername(Consumer<String> action) {
+        onPersister(() -> {
+            synchronized (this) {
+                for (UserRecord record : records) {
+                    action.accept(record.getUsername());
+                }
+                for (UserRecord record : registered) {
+                    action.accept(record.getUsername());
+                }
+            }
+            return null;
+        });
+    }
+
+    // records belong to the persister thread, reads of the whole table run there
+    private <T> T onPersister(Callable<T> task) {
+        try {
+            return persister.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted reading users", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error reading users", e.getCause());
+        }
+    }
+
+    // flushes whatever is pending, folds the log into the snapshot and waits for both,
+    // no changes are accepted afterwards
+    @Override
+    public void close() {
+        persister.execute(() -> {
+            flush();
+            compact();
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + logFile + ": " + e.getMessage());
+            }
+        });
+        persister.shutdown();
+        try {
+            if (!persister.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Timed out writing " + logFile);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void requestFlushIfFull() {
+        if (!flushRequested && registered.size() + dirty.size() >= batchSize) {
+            flushRequested = true;
+            persister.execute(this::flush);
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+            String line;
+            boolean headerLine = true;
+            while ((line = reader.readLine()) != null) {
+                if (headerLine) {
+                    headerLine = false;
+                    continue;
+                }
+                UserRecord record = UserRecord.fromCsvLine(line);
+                if (record == null) {
+                    System.err.println("Skipping malformed user entry: " + line);
+                    continue;
+                }
+                // the first entry for a username is the one logins have always matched
+                if (index.putIfAbsent(record.getUsername(), record) == null) {
+                    records.add(record);
+                }
+            }
+        }
+    }
+
+    // replays the log over the snapshot and cuts off a torn tail, returns the number of records replayed.
+    // Replaying is idempotent, a log that survived a crash between snapshot and truncation is harmless.
+    private int replayLog() throws IOException {
+        byte[] bytes = Files.readAllBytes(logFile);
+        int replayed = 0;
+        int offset = 0;
+        while (offset < bytes.length) {
+            int end = offset;
+            while (end < bytes.length && bytes[end] != '\n') {
+                end++;
+            }
+            String[] fields = end < bytes.length ? checkedFields(new String(bytes, offset, end - offset, StandardCharsets.UTF_8)) : null;
+            if (fields == null) {
+                System.err.println("Discarding " + (bytes.length - offset) + " bytes of torn or corrupt records from " + logFile);
+                log.truncate(offset);
+                log.force(false);
+                break;
+            }
+            // the record was written whole, one that does not make sense must not cost the ones after it
+            if (apply(fields)) {
+                replayed++;
+            } else {
+                System.err.println("Skipping malformed log record: " + new String(bytes, offset, end - offset, StandardCharsets.UTF_8));
+            }
+            offset = end + 1;
+        }
+        log.position(log.size());
+        return replayed;
+    }
+
+    // returns false for records that do not fit the log format
+    private boolean apply(String[] fields) {
+        try {
+            if (fields[0].equals(REGISTER) && fields.length == 3 && UserRecord.isValidUsername(fields[1])) {
+                UserRecord record = new UserRecord(fields[1], fields[2], 0, 0);
+                if (index.putIfAbsent(record.getUsername(), record) == null) {
+                    records.add(record);
+                }
+                return true;
+            }
+            if (fields[0].equals(UPDATE) && fields.length == 4) {
+                UserRecord record = index.get(fields[1]);
+                if (record != null) {
+                    record.update(Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+                }
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return false;
+    }
+
+    // runs on the persister thread only
+    private void flush() {
+        List<UserRecord> newRecords;
+        List<UserRecord> updatedRecords;
+        synchronized (this) {
+            newRecords = registered;
+            registered = new ArrayList<>();
+            updatedRecords = new ArrayList<>(dirty);
+            dirty.clear();
+            flushRequested = false;
+        }
+        records.addAll(newRecords);
+
+        if (compactNeeded) {
+            compact();
+            return;
+        }
+        if (newRecords.isEmpty() && updatedRecords.isEmpty()) {
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (UserRecord record : newRecords) {
+            appendRecord(text, REGISTER + "," + record.getUsername() + "," + record.getPasswordHash());
+        }
+        for (UserRecord record : updatedRecords) {
+            appendRecord(text, UPDATE + "," + record.getUsername() + "," + record.getScore() + "," + record.getGamesPlayed());
+        }
+        try {
+            write(log, text.toString());
+            log.force(false);
+        } catch (IOException e) {
+            System.err.println("Error writing " + logFile + ": " + e.getMessage());
+            compactNeeded = true;
+            return;
+        }
+
+        try {
+            if (log.size() >= compactLogBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    // writes every account to a new snapshot, then empties the log it supersedes.
+    // The snapshot is complete and synced before it replaces the old one.
+    private void compact() {
+        StringBuilder text = new StringBuilder(HEADER).append('\n');
+        for (UserRecord record : records) {
+            text.append(record.toCsvLine()).append('\n');
+        }
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(channel, text.toString());
+                channel.force(false);
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.truncate(0);
+            log.force(false);
+            compactNeeded = false;
+        } catch (IOException e) {
+            System.err.println("Error writing " + snapshotFile + ": " + e.getMessage());
+            compactNeeded = true;
+        }
+    }
+
+    // log record: fields separated by ',' followed by the CRC32 of everything before it
+    private static void appendRecord(StringBuilder text, String content) {
+        text.append(content).append(',').append(checksum(content)).append('\n');
+    }
+
+    // returns null if the record's checksum does not match its content
+    private static String[] checkedFields(String line) {
+        int separator = line.lastIndexOf(',');
+        if (separator < 0) {
+            return null;
+        }
+        String content = line.substring(0, separator);
+        if (!checksum(content).equals(line.substring(separator + 1))) {
+            return null;
+        }
+        return content.split(",", -1);
+    }
+
+    private static String checksum(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    private static void write(FileChannel channel, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
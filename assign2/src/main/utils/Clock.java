@@ -0,0 +1,17 @@
+package main.utils;
+
+// Single monotonic time source for queue waiting times and timeouts.
+public class Clock {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private Clock() {
+    }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    public static double secondsSince(long timestamp) {
+        return (now() - timestamp) / NANOS_PER_SECOND;
+    }
+}
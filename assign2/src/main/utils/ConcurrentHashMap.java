@@ -1,69 +1,330 @@
 package main.utils;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+// Hash map split into independently locked segments.
+//
+// Reads (get, containsKey, iteration) never lock: bins are read through an AtomicReferenceArray and
+// chain links and values are volatile, so a reader always sees a consistent chain. Writes lock only
+// the key's segment, so writers to different segments never wait for each other. A segment grows by
+// copying its nodes into a new table, readers still on the old table keep seeing the old chains.
+// The compute operations run their function under the segment lock and are atomic; the function
+// must be short and must not use this map.
+//
+// Keys and values may not be null, a null result from get means the key is absent.
+// Iteration and size are weakly consistent: they reflect some state since they started.
 public class ConcurrentHashMap<K, V> {
-    private final Map<K, V> map;
-    private final ReentrantLock lock;
+    private static final int SEGMENTS = 16;
+    private static final int SEGMENT_SHIFT = 32 - Integer.numberOfTrailingZeros(SEGMENTS);
+    private static final int INITIAL_BINS = 4;
 
+    private final Segment<K, V>[] segments;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public ConcurrentHashMap() {
-        map = new HashMap<>();
-        lock = new ReentrantLock();
+        segments = (Segment<K, V>[]) new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
     }
 
     public V get(K key) {
-        lock.lock();
-        try {
-            return map.get(key);
-        } finally {
-            lock.unlock();
-        }
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
     }
 
     public V getOrDefault(K key, V defaultValue) {
-        lock.lock();
-        try {
-            return map.getOrDefault(key, defaultValue);
-        } finally {
-            lock.unlock();
-        }
+        V value = get(key);
+        return value != null ? value : defaultValue;
     }
 
     public void put(K key, V value) {
-        lock.lock();
-        try {
-            map.put(key, value);
-        } finally {
-            lock.unlock();
-        }
+        int hash = hash(key);
+        segmentFor(hash).put(key, hash, Objects.requireNonNull(value), false);
     }
 
     public void remove(K key) {
-        lock.lock();
-        try {
-            map.remove(key);
-        } finally {
-            lock.unlock();
-        }
+        int hash = hash(key);
+        segmentFor(hash).remove(key, hash, null);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, Objects.requireNonNull(value), true);
+    }
+
+    public boolean remove(K key, V value) {
+        int hash = hash(key);
+        return value != null && segmentFor(hash).remove(key, hash, value) != null;
     }
 
     public boolean containsKey(K key) {
-        lock.lock();
-        try {
-            return map.containsKey(key);
-        } finally {
-            lock.unlock();
-        }
+        return get(key) != null;
     }
 
     public boolean containsValue(V value) {
-        lock.lock();
-        try {
-            return map.containsValue(value);
-        } finally {
-            lock.unlock();
+        Objects.requireNonNull(value);
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> table = segment.table;
+            for (int i = 0; i < table.length(); i++) {
+                for (Node<K, V> node = table.get(i); node != null; node = node.next) {
+                    if (value.equals(node.value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // returns the current value, or the function's result which is then stored if it is not null
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int hash = hash(key);
+        V value = segmentFor(hash).get(key, hash);
+        if (value != null) {
+            return value;
+        }
+        return segmentFor(hash).compute(key, hash, (k, current) -> current != null ? current : mappingFunction.apply(k));
+    }
+
+    // applies the function to the current value if there is one, a null result removes the key
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, (k, current) -> current == null ? null : remappingFunction.apply(k, current));
+    }
+
+    // applies the function to the current value or null, a null result removes the key
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, remappingFunction);
+    }
+
+    public int size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.count;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    // weakly consistent, never locks and never throws ConcurrentModificationException
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Segment<K, V> segment : segments) {
+            AtomicReferenceArray<Node<K, V>> table = segment.table;
+            for (int i = 0; i < table.length(); i++) {
+                for (Node<K, V> node = table.get(i); node != null; node = node.next) {
+                    V value = node.value;
+                    if (value != null) {
+                        action.accept(node.key, value);
+                    }
+                }
+            }
+        }
+    }
+
+    // snapshot of the keys, weakly consistent
+    public List<K> keys() {
+        List<K> keys = new ArrayList<>();
+        forEach((key, value) -> keys.add(key));
+        return keys;
+    }
+
+    // snapshot of the values, weakly consistent
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[hash >>> SEGMENT_SHIFT];
+    }
+
+    // spreads the key's hash so both the segment (high bits) and the bin (low bits) get well mixed bits
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final int hash;
+        private volatile V value;
+        private volatile Node<K, V> next;
+
+        Node(K key, int hash, V value, Node<K, V> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+
+        boolean matches(Object key, int hash) {
+            return this.hash == hash && (this.key == key || this.key.equals(key));
+        }
+    }
+
+    // writers hold the segment's lock, readers only follow volatile references
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile AtomicReferenceArray<Node<K, V>> table = new AtomicReferenceArray<>(INITIAL_BINS);
+        private volatile int count = 0;
+
+        V get(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for (Node<K, V> node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next) {
+                if (node.matches(key, hash)) {
+                    return node.value;
+                }
+            }
+            return null;
+        }
+
+        // returns the previous value, or null if there was none
+        V put(K key, int hash, V value, boolean onlyIfAbsent) {
+            lock.lock();
+            try {
+                Node<K, V> node = find(key, hash);
+                if (node != null) {
+                    V previous = node.value;
+                    if (!onlyIfAbsent) {
+                        node.value = value;
+                    }
+                    return previous;
+                }
+                insert(key, hash, value);
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // removes the key if it maps to the expected value, or to anything when expected is null
+        V remove(Object key, int hash, Object expected) {
+            lock.lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> previous = null;
+                for (Node<K, V> node = tab.get(index); node != null; previous = node, node = node.next) {
+                    if (node.matches(key, hash)) {
+                        V value = node.value;
+                        if (expected != null && !expected.equals(value)) {
+                            return null;
+                        }
+                        unlink(tab, index, previous, node);
+                        return value;
+                    }
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V compute(K key, int hash, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            lock.lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> tab = table;
+                int index = hash & (tab.length() - 1);
+                Node<K, V> previous = null;
+                for (Node<K, V> node = tab.get(index); node != null; previous = node, node = node.next) {
+                    if (node.matches(key, hash)) {
+                        V value = remappingFunction.apply(key, node.value);
+                        if (value == null) {
+                            unlink(tab, index, previous, node);
+                        } else {
+                            node.value = value;
+                        }
+                        return value;
+                    }
+                }
+                V value = remappingFunction.apply(key, null);
+                if (value != null) {
+                    insert(key, hash, value);
+                }
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                table = new AtomicReferenceArray<>(INITIAL_BINS);
+                count = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // the following run with the lock held
+
+        private Node<K, V> find(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for (Node<K, V> node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next) {
+                if (node.matches(key, hash)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        private void insert(K key, int hash, V value) {
+            if (count + 1 > table.length() * 3 / 4) {
+                grow();
+            }
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int index = hash & (tab.length() - 1);
+            // a fully built node becomes visible to readers in one volatile write
+            tab.set(index, new Node<>(Objects.requireNonNull(key), hash, value, tab.get(index)));
+            count = count + 1;
+        }
+
+        private void unlink(AtomicReferenceArray<Node<K, V>> tab, int index, Node<K, V> previous, Node<K, V> node) {
+            if (previous == null) {
+                tab.set(index, node.next);
+            } else {
+                previous.next = node.next;
+            }
+            count = count - 1;
+        }
+
+        // copies every node, chains in the old table are left untouched for readers still using it
+        private void grow() {
+            AtomicReferenceArray<Node<K, V>> old = table;
+            AtomicReferenceArray<Node<K, V>> grown = new AtomicReferenceArray<>(old.length() * 2);
+            int mask = grown.length() - 1;
+            for (int i = 0; i < old.length(); i++) {
+                for (Node<K, V> node = old.get(i); node != null; node = node.next) {
+                    int index = node.hash & mask;
+                    grown.set(index, new Node<>(node.key, node.hash, node.value, grown.get(index)));
+                }
+            }
+            table = grown;
         }
     }
 }
@@ -1,94 +1,226 @@
 package main.utils;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Iterator;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// Lock-free linked list kept in insertion order, for FIFO collections whose members may also
+// leave from the middle (a player quitting a queue).
+//
+// Removal is in two steps, as in Harris' list: an element is first deleted logically by a CAS of
+// its node's item to null, which decides which remover wins, and the node is then unlinked with a
+// CAS on its predecessor's next. Readers skip deleted nodes, so contains, remove and iteration
+// never wait on each other, and a failed unlink only leaves a deleted node for a later traversal
+// to unlink. The last node is never unlinked, since add appends after it, so every node's next
+// only moves forward and add stays O(1) from the tail.
+//
+// Iterators are weakly consistent: they never throw ConcurrentModificationException, return each
+// element at most once, and may or may not see changes made after they were created.
 public class ConcurrentLinkedList<T> implements Iterable<T> {
-    private Node<T> head;
-    private Node<T> tail;
-    private final Lock lock;
+    private static final VarHandle TAIL;
+    private static final VarHandle ITEM;
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(ConcurrentLinkedList.class, "tail", Node.class);
+            ITEM = lookup.findVarHandle(Node.class, "item", Object.class);
+            NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // dummy node, never deleted
+    private final Node<T> head = new Node<>(null);
+    // some node at or before the last one
+    private volatile Node<T> tail = head;
+    // live elements: counted once linked, uncounted by the thread whose CAS deletes them
+    private final AtomicInteger count = new AtomicInteger();
 
     public ConcurrentLinkedList() {
-        head = null;
-        tail = null;
-        lock = new ReentrantLock();
     }
 
     public void add(T element) {
-        Node<T> newNode = new Node<>(element);
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        Node<T> node = new Node<>(element);
+        while (true) {
+            Node<T> start = tail;
+            Node<T> last = start;
+            Node<T> next;
+            // tail may lag behind appends that have not swung it yet
+            while ((next = last.next) != null) {
+                last = next;
+            }
+            if (NEXT.compareAndSet(last, null, node)) {
+                count.incrementAndGet();
+                // only moves forward, a failure means another add already moved it
+                TAIL.compareAndSet(this, start, node);
+                return;
+            }
+        }
+    }
 
-        lock.lock();
-        try {
-            if (head == null) {
-                head = newNode;
-                tail = newNode;
+    public void addAll(Iterable<? extends T> elements) {
+        for (T element : elements) {
+            add(element);
+        }
+    }
+
+    // removes the first occurrence, returns false if it was not there or another thread removed it first
+    public boolean remove(T element) {
+        if (element == null) {
+            return false;
+        }
+        Node<T> pred = head;
+        Node<T> node = head.next;
+        while (node != null) {
+            Object item = node.item;
+            if (item != null && element.equals(item) && ITEM.compareAndSet(node, item, null)) {
+                count.decrementAndGet();
+                unlink(pred, node);
+                return true;
+            }
+            Node<T> next = node.next;
+            if (item == null) {
+                // deleted by someone else, help unlink it and keep the same predecessor
+                pred = unlink(pred, node) ? pred : node;
             } else {
-                tail.next = newNode;
-                tail = newNode;
+                pred = node;
             }
-        } finally {
-            lock.unlock();
+            node = next;
         }
+        return false;
     }
 
-    public void remove(T element) {
-        lock.lock();
-        try {
-            Node<T> prev = null;
-            Node<T> curr = head;
-
-            while (curr != null) {
-                if (curr.value.equals(element)) {
-                    if (prev == null) {
-                        head = curr.next;
-                        if (head == null) {
-                            tail = null;
-                        }
-                    } else {
-                        prev.next = curr.next;
-                        if (curr.next == null) {
-                            tail = prev;
-                        }
-                    }
-                    break;
-                }
-                prev = curr;
-                curr = curr.next;
+    // removes and returns the first element, or null when the list is empty
+    public T poll() {
+        Node<T> pred = head;
+        Node<T> node = head.next;
+        while (node != null) {
+            @SuppressWarnings("unchecked")
+            T item = (T) node.item;
+            if (item != null && ITEM.compareAndSet(node, item, null)) {
+                count.decrementAndGet();
+                unlink(pred, node);
+                return item;
             }
-        } finally {
-            lock.unlock();
+            Node<T> next = node.next;
+            pred = item == null && unlink(pred, node) ? pred : node;
+            node = next;
         }
+        return null;
     }
 
     public boolean contains(T element) {
-        lock.lock();
-        try {
-            Node<T> curr = head;
-            while (curr != null) {
-                if (curr.value.equals(element)) {
-                    return true;
-                }
-                curr = curr.next;
-            }
+        if (element == null) {
             return false;
-        } finally {
-            lock.unlock();
         }
+        for (Node<T> node = head.next; node != null; node = node.next) {
+            Object item = node.item;
+            if (item != null && element.equals(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (Node<T> node = head.next; node != null; node = node.next) {
+            if (node.item != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // O(1). Exact when the list is quiescent; while other threads change it, an element may be
+    // deleted before its add is counted, so the count can briefly lag and is clamped at 0
+    public int size() {
+        return Math.max(0, count.get());
     }
 
     @Override
     public Iterator<T> iterator() {
-        return null;
+        return new WeakIterator();
+    }
+
+    // bypasses a deleted node, unless it is the last one. Only ever skips that node: nothing is
+    // inserted between a node and its successor once the successor exists. If pred was itself
+    // unlinked meanwhile this changes nothing reachable, and node is left for a later traversal.
+    private boolean unlink(Node<T> pred, Node<T> node) {
+        Node<T> next = node.next;
+        return next != null && NEXT.compareAndSet(pred, node, next);
+    }
+
+    private class WeakIterator implements Iterator<T> {
+        // the node holding nextItem, its item may have been deleted since
+        private Node<T> nextNode;
+        private T nextItem;
+        private Node<T> lastReturned;
+
+        WeakIterator() {
+            advance(head);
+        }
+
+        // finds the first live node after the given one
+        @SuppressWarnings("unchecked")
+        private void advance(Node<T> from) {
+            Node<T> node = from.next;
+            while (node != null) {
+                Object item = node.item;
+                if (item != null) {
+                    nextNode = node;
+                    nextItem = (T) item;
+                    return;
+                }
+                node = node.next;
+            }
+            nextNode = null;
+            nextItem = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public T next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            T item = nextItem;
+            lastReturned = nextNode;
+            advance(nextNode);
+            return item;
+        }
+
+        // deletes the element last returned, if no other thread has already
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            Object item = lastReturned.item;
+            if (item != null && ITEM.compareAndSet(lastReturned, item, null)) {
+                count.decrementAndGet();
+            }
+            lastReturned = null;
+        }
     }
 
     private static class Node<T> {
-        private T value;
-        private Node<T> next;
+        private volatile Object item;
+        private volatile Node<T> next;
 
-        public Node(T value) {
-            this.value = value;
-            this.next = null;
+        Node(Object item) {
+            this.item = item;
         }
     }
 }
@@ -1,53 +1,198 @@
 package main.utils;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+// Unbounded lock-free FIFO queue for any number of producers and consumers (Michael & Scott).
+//
+// The list always starts with a dummy node: head points at it and the first element is head.next.
+// offer links a node after the last one with a CAS on its next and then swings tail, poll swings
+// head forward with a CAS and the node it lands on becomes the new dummy. A thread that finds tail
+// lagging behind the last node swings it itself before retrying, so no thread ever waits on another.
+//
+// Only the blocking take and timed poll use a lock, and only once the queue is empty:
+// producers signal when a consumer has announced itself in waiters.
 public class ConcurrentLinkedQueue<T> {
-    private Node<T> head;
-    private Node<T> tail;
-    private Lock lock;
-    private Condition condition;
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(ConcurrentLinkedQueue.class, "head", Node.class);
+            TAIL = lookup.findVarHandle(ConcurrentLinkedQueue.class, "tail", Node.class);
+            NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile Node<T> head;
+    private volatile Node<T> tail;
+    // elements linked by offer and not yet taken by poll
+    private final AtomicInteger count = new AtomicInteger();
+
+    // consumers parked (or about to park) in take or a timed poll
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
 
     public ConcurrentLinkedQueue() {
-        head = new Node<T>(null);
-        tail = head;
-        lock = new ReentrantLock();
-        condition = lock.newCondition();
+        head = tail = new Node<>(null);
     }
 
     public void offer(T element) {
-        Node<T> newNode = new Node<T>(element);
-        lock.lock();
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        Node<T> node = new Node<>(element);
+        while (true) {
+            Node<T> last = tail;
+            Node<T> next = last.next;
+            if (last != tail) {
+                continue;
+            }
+            if (next != null) {
+                // another producer linked a node but has not swung tail yet
+                TAIL.compareAndSet(this, last, next);
+            } else if (NEXT.compareAndSet(last, null, node)) {
+                count.incrementAndGet();
+                TAIL.compareAndSet(this, last, node);
+                break;
+            }
+        }
+        if (waiters.get() > 0) {
+            signalNotEmpty();
+        }
+    }
+
+    public void add(T element) {
+        offer(element);
+    }
+
+    // returns null when the queue is empty, never blocks
+    public T poll() {
+        while (true) {
+            Node<T> first = head;
+            Node<T> last = tail;
+            Node<T> next = first.next;
+            if (first != head) {
+                continue;
+            }
+            if (next == null) {
+                return null;
+            }
+            if (first == last) {
+                // tail is lagging, head must not pass it
+                TAIL.compareAndSet(this, last, next);
+                continue;
+            }
+            T element = next.element;
+            if (HEAD.compareAndSet(this, first, next)) {
+                count.decrementAndGet();
+                // next is the dummy now, don't keep its element reachable
+                next.element = null;
+                return element;
+            }
+        }
+    }
+
+    // waits up to the timeout for an element, returns null if none arrived
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        T element = poll();
+        if (element != null) {
+            return element;
+        }
+        return await(unit.toNanos(timeout), true);
+    }
+
+    // waits as long as it takes for an element
+    public T take() throws InterruptedException {
+        T element = poll();
+        if (element != null) {
+            return element;
+        }
+        return await(0, false);
+    }
+
+    // moves every element currently available into the collection, returns how many
+    public int drainTo(Collection<? super T> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super T> collection, int maxElements) {
+        int drained = 0;
+        T element;
+        while (drained < maxElements && (element = poll()) != null) {
+            collection.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    // O(1) and approximate while other threads are changing the queue: an element can be polled
+    // before its offer is counted, so the count may briefly lag and is clamped at 0
+    public int size() {
+        return Math.max(0, count.get());
+    }
+
+    // the waiter counts itself in before checking the queue again under the lock, so a producer
+    // either sees it and signals, or linked its node before that check and the waiter finds it
+    private T await(long nanos, boolean timed) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            waiters.decrementAndGet();
+            throw e;
+        }
         try {
-            tail.next = newNode;
-            tail = newNode;
-            condition.signal();
+            T element;
+            while ((element = poll()) == null) {
+                if (!timed) {
+                    notEmpty.await();
+                } else if (nanos <= 0) {
+                    return null;
+                } else {
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            }
+            return element;
         } finally {
+            waiters.decrementAndGet();
+            // a signal this waiter took but did not use, or more elements behind the one it took
+            if (waiters.get() > 0 && !isEmpty()) {
+                notEmpty.signal();
+            }
             lock.unlock();
         }
     }
 
-    public T poll() throws InterruptedException {
+    private void signalNotEmpty() {
         lock.lock();
         try {
-            while (head.next == null) {
-                condition.await();
-            }
-            T element = head.next.element;
-            head = head.next;
-            return element;
+            notEmpty.signal();
         } finally {
             lock.unlock();
         }
     }
 
     private static class Node<T> {
+        // published by the CAS that links the node
         private T element;
-        private Node<T> next;
+        private volatile Node<T> next;
 
-        public Node(T element) {
+        Node(T element) {
             this.element = element;
         }
     }
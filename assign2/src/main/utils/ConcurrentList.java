@@ -1,101 +1,195 @@
 package main.utils;
 
-import main.game.Player;
-
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+// List for read-mostly sharing between threads.
+//
+// The elements are an immutable array snapshot behind a volatile reference. Reads and iteration use
+// whatever snapshot is current without locking or copying; every write builds a new array under the
+// lock and publishes it in one volatile write. Iterators therefore never see later changes and never
+// throw ConcurrentModificationException. Batch writes (addAll, removeIf) publish once.
 public class ConcurrentList<T> implements Iterable<T> {
-    private final List<T> list;
-    private final ReadWriteLock lock;
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Object lock = new Object();
+    private volatile Object[] array = EMPTY;
 
     public ConcurrentList() {
-        list = new ArrayList<>();
-        lock = new ReentrantReadWriteLock();
     }
 
     public void add(T element) {
-        lock.writeLock().lock();
-        try {
-            list.add(element);
-        } finally {
-            lock.writeLock().unlock();
+        synchronized (lock) {
+            Object[] current = array;
+            Object[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = element;
+            array = next;
+        }
+    }
+
+    public void addAll(Iterable<? extends T> elements) {
+        List<T> added = new ArrayList<>();
+        for (T element : elements) {
+            added.add(element);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            Object[] current = array;
+            Object[] next = Arrays.copyOf(current, current.length + added.size());
+            for (int i = 0; i < added.size(); i++) {
+                next[current.length + i] = added.get(i);
+            }
+            array = next;
         }
     }
 
+    // removes the first occurrence of the element
     public void remove(T element) {
-        lock.writeLock().lock();
-        try {
-            list.remove(element);
-        } finally {
-            lock.writeLock().unlock();
+        synchronized (lock) {
+            Object[] current = array;
+            int index = indexOf(current, element);
+            if (index >= 0) {
+                array = without(current, index);
+            }
         }
     }
 
-    public Player remove(int i) {
-        lock.writeLock().lock();
-        try {
-            return (Player) list.remove(i);
-        } finally {
-            lock.writeLock().unlock();
+    public T remove(int i) {
+        synchronized (lock) {
+            Object[] current = array;
+            T removed = elementAt(current, i);
+            array = without(current, i);
+            return removed;
         }
     }
 
-    public boolean contains(T element) {
-        lock.readLock().lock();
-        try {
-            return list.contains(element);
-        } finally {
-            lock.readLock().unlock();
+    // returns true if any element was removed
+    public boolean removeIf(Predicate<? super T> filter) {
+        synchronized (lock) {
+            Object[] current = array;
+            Object[] kept = new Object[current.length];
+            int size = 0;
+            for (Object element : current) {
+                @SuppressWarnings("unchecked")
+                T value = (T) element;
+                if (!filter.test(value)) {
+                    kept[size++] = element;
+                }
+            }
+            if (size == current.length) {
+                return false;
+            }
+            array = Arrays.copyOf(kept, size);
+            return true;
         }
     }
 
+    public boolean contains(T element) {
+        return indexOf(array, element) >= 0;
+    }
+
     public List<T> getAll() {
-        lock.readLock().lock();
-        try {
-            return new ArrayList<>(list);
-        } finally {
-            lock.readLock().unlock();
-        }
+        Object[] current = array;
+        return snapshot(current, 0, current.length);
     }
 
     public T get(int index) {
-        lock.readLock().lock();
-        try {
-            return list.get(index);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return elementAt(array, index);
     }
 
     public int size() {
-        lock.readLock().lock();
-        try {
-            return list.size();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return array.length;
+    }
+
+    public boolean isEmpty() {
+        return array.length == 0;
     }
 
     @Override
     public Iterator<T> iterator() {
-        lock.readLock().lock();
-        try {
-            return new ArrayList<>(list).iterator();
-        } finally {
-            lock.readLock().unlock();
+        return new SnapshotIterator<>(array);
+    }
+
+    // walks the current snapshot without allocating
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (Object element : array) {
+            @SuppressWarnings("unchecked")
+            T value = (T) element;
+            action.accept(value);
         }
     }
 
+    // a copy of the range, later changes to the list do not show through it
     public List<T> subList(int fromIndex, int toIndex) {
-        lock.readLock().lock();
-        try {
-            return list.subList(fromIndex, toIndex);
-        } finally {
-            lock.readLock().unlock();
+        Object[] current = array;
+        if (fromIndex < 0 || toIndex > current.length || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex " + fromIndex + ", toIndex " + toIndex + ", size " + current.length);
+        }
+        return snapshot(current, fromIndex, toIndex);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> snapshot(Object[] elements, int fromIndex, int toIndex) {
+        List<T> copy = new ArrayList<>(toIndex - fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            copy.add((T) elements[i]);
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T elementAt(Object[] elements, int index) {
+        if (index < 0 || index >= elements.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + elements.length);
+        }
+        return (T) elements[index];
+    }
+
+    private static int indexOf(Object[] elements, Object element) {
+        for (int i = 0; i < elements.length; i++) {
+            if (element == null ? elements[i] == null : element.equals(elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object[] without(Object[] elements, int index) {
+        Object[] next = new Object[elements.length - 1];
+        System.arraycopy(elements, 0, next, 0, index);
+        System.arraycopy(elements, index + 1, next, index, elements.length - index - 1);
+        return next;
+    }
+
+    private static class SnapshotIterator<T> implements Iterator<T> {
+        private final Object[] elements;
+        private int next = 0;
+
+        SnapshotIterator(Object[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < elements.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next >= elements.length) {
+                throw new NoSuchElementException();
+            }
+            return (T) elements[next++];
         }
     }
 }
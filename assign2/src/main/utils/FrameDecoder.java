@@ -0,0 +1,56 @@
+package main.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static main.utils.Helper.MESSAGE_TERMINATOR;
+
+// Incremental decoder for MESSAGE_TERMINATOR delimited frames.
+// One instance is kept per connection so that partial frames survive between select() calls.
+public class FrameDecoder {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    // bytes before this index are known not to contain a terminator
+    private int scanned = 0;
+
+    // performs a single non-blocking read, returns the channel's read result (-1 on end of stream)
+    public int read(ReadableByteChannel channel) throws IOException {
+        if (!buffer.hasRemaining()) {
+            grow();
+        }
+        return channel.read(buffer);
+    }
+
+    // returns the next complete frame without its terminator, or null if none is buffered yet
+    public String nextFrame() {
+        byte[] bytes = buffer.array();
+        int end = buffer.position();
+        for (int i = scanned; i < end; i++) {
+            if (bytes[i] == MESSAGE_TERMINATOR) {
+                String frame = new String(bytes, 0, i, StandardCharsets.UTF_8);
+                // drop the frame and its terminator, keep whatever follows it
+                buffer.flip();
+                buffer.position(i + 1);
+                buffer.compact();
+                scanned = 0;
+                return frame;
+            }
+        }
+        scanned = end;
+        return null;
+    }
+
+    private void grow() throws IOException {
+        if (buffer.capacity() >= MAX_FRAME_SIZE) {
+            throw new IOException("Frame exceeds " + MAX_FRAME_SIZE + " bytes");
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MAX_FRAME_SIZE));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+}
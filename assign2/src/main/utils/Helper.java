@@ -1,8 +1,11 @@
 package main.utils;
 
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.List;
 
 public class Helper {
@@ -30,30 +33,81 @@ public class Helper {
     }
 
 
-    public static String hashPassword(String password) {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+            HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+        }
+    }
+
+    // MessageDigest is not thread safe and costly to look up, each thread keeps its own
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = md.digest(password.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashedBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
-            // Handle error
-            System.err.println("Error hashing password: " + e.getMessage());
-            return null;
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
+    });
+
+    public static byte[] digestPassword(String password) {
+        // digest() leaves the instance reset for the next call
+        return SHA_256.get().digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String hashPassword(String password) {
+        return toHex(digestPassword(password));
     }
 
+    // compares the raw digests in constant time, so the time taken does not reveal how much of the hash matched
     public static boolean verifyPassword(String password, String hashedPassword) {
-        String hashedInput = hashPassword(password);
-        return hashedInput != null && hashedInput.equals(hashedPassword);
+        return verifyDigest(digestPassword(password), hashedPassword);
     }
 
+    public static boolean verifyDigest(byte[] digest, String hashedPassword) {
+        byte[] stored = hashedPassword == null ? null : fromHex(hashedPassword);
+        return stored != null && MessageDigest.isEqual(digest, stored);
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    // returns null if the string is not an even number of hex digits
+    public static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = hexValue(hex.charAt(2 * i));
+            int low = hexValue(hex.charAt(2 * i + 1));
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    private static int hexValue(char c) {
+        return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+    }
 
+    // 256 random bits, unique and unguessable unlike a hash of the clock
     public static String generateSessionToken() {
-        return hashPassword(String.valueOf(System.currentTimeMillis()));
+        byte[] token = new byte[32];
+        RANDOM.nextBytes(token);
+        return toHex(token);
     }
 
     public static int findFirst(List<Boolean> nums, boolean target) {
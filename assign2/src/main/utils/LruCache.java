@@ -0,0 +1,90 @@
+package main.utils;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded cache that evicts the least recently used entry once full.
+// Values are held through soft references, so the garbage collector may also evict them under memory
+// pressure, a collected value counts as a miss. Hits and misses are counted to help size the cache.
+public class LruCache<K, V> {
+    private final Map<K, SoftReference<V>> map;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public LruCache(int capacity) {
+        // access order: every get moves the entry to the most recently used end
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, SoftReference<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public V get(K key) {
+        V value = peek(key);
+        (value == null ? misses : hits).incrementAndGet();
+        return value;
+    }
+
+    // get without counting a hit or miss, for updates of entries that may be cached
+    public V peek(K key) {
+        V value;
+        lock.lock();
+        try {
+            SoftReference<V> reference = map.get(key);
+            value = reference == null ? null : reference.get();
+            if (reference != null && value == null) {
+                map.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            map.put(key, new SoftReference<>(value));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            map.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public double hitRate() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+}
@@ -17,6 +17,8 @@ public enum MessageType {
     GAME_MODE_RESPONSE,
     GAME_GUESS_REQUEST,
     GAME_END,
+    LEADERBOARD_REQUEST, //client to server, optionally followed by the number of entries
+    RANK_REQUEST, //client to server
 
     DEFAULT;
     //...
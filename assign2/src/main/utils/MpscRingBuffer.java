@@ -0,0 +1,136 @@
+package main.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Bounded ring of preallocated events with many producers and a single consumer, in the style of
+// the LMAX Disruptor.
+//
+// A producer claims the next sequence once its slot has been consumed, fills the event in that slot
+// and publishes it; the consumer handles published events in sequence order and hands their slots
+// back in one write per batch. Events are reused, so publishing allocates nothing.
+//
+//     long sequence = ring.tryClaim();
+//     if (sequence >= 0) {
+//         ring.get(sequence).value = ...;
+//         if (ring.publish(sequence)) { wake the consumer }
+//     }
+public class MpscRingBuffer<E> {
+    private static final int SPINS = 100;
+
+    private final Object[] events;
+    private final int mask;
+    // sequence last published into each slot, -1 before the first
+    private final AtomicLongArray published;
+    // next sequence to claim
+    private final AtomicLong claimed = new AtomicLong();
+    // next sequence to consume, written by the consumer only
+    private volatile long consumed = 0;
+
+    public MpscRingBuffer(int capacity, Supplier<E> factory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.events = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            events[i] = factory.get();
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return events.length;
+    }
+
+    // returns the claimed sequence, or -1 if the ring stayed full for the whole timeout.
+    // A claimed sequence must be published, the consumer stops at the first one that is not.
+    public long claim(long timeout, TimeUnit unit) {
+        long deadline = 0;
+        int spins = 0;
+        while (true) {
+            long sequence = tryClaim();
+            if (sequence >= 0) {
+                return sequence;
+            }
+            // full, wait for the consumer to hand slots back
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+                continue;
+            }
+            if (deadline == 0) {
+                deadline = System.nanoTime() + unit.toNanos(timeout);
+            } else if (System.nanoTime() - deadline >= 0) {
+                return -1;
+            }
+            LockSupport.parkNanos(1_000);
+        }
+    }
+
+    // returns the claimed sequence, or -1 at once if the ring is full. Never blocks, for producers
+    // that must not stall on a slow consumer.
+    public long tryClaim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= events.length) {
+                return -1;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) events[(int) (sequence & mask)];
+    }
+
+    // makes the event visible to the consumer. Returns true if the ring was empty up to this
+    // event, in which case the consumer may be idle and the producer has to wake it.
+    public boolean publish(long sequence) {
+        published.set((int) (sequence & mask), sequence);
+        // the consumer writes consumed before checking the next slot, so either it sees this
+        // event or this read sees it waiting right here
+        return consumed == sequence;
+    }
+
+    // consumer only: handles the published events in order, at most one ring's worth so that
+    // producers that never stop cannot starve the consumer's other work, and returns how many.
+    // The handler must be done with the event when it returns, its slot is reused afterwards.
+    public int drain(Consumer<? super E> handler) {
+        int batchSize = Math.max(1, events.length >> 2);
+        long next = consumed;
+        int handled = 0;
+        while (true) {
+            int batch = 0;
+            while (batch < batchSize && published.get((int) (next & mask)) == next) {
+                handler.accept(get(next));
+                next++;
+                batch++;
+            }
+            // hands the batch's slots back to the producers
+            consumed = next;
+            handled += batch;
+            // a producer that read consumed before this write did not wake us, look once more
+            if (handled >= events.length || published.get((int) (next & mask)) != next) {
+                return handled;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return published.get((int) (consumed & mask)) != consumed;
+    }
+
+    // claimed but not yet consumed, including events still being filled in
+    public int size() {
+        return (int) Math.max(0, claimed.get() - consumed);
+    }
+}
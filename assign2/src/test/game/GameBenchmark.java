@@ -0,0 +1,136 @@
+package test.game;
+
+import main.game.Game;
+import main.game.Player;
+import main.server.GameExecutors;
+import main.utils.ConcurrentList;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+// Runs complete games (3 rounds, 2 players each) with their events dispatched on each game executor mode.
+// Players have no connection, so this measures the game engine and the executor, not the network.
+//
+// Run with: java -cp <classes> test.game.GameBenchmark [games...]
+public class GameBenchmark {
+    private static final int PLAYERS_PER_GAME = 2;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] gameCounts = args.length > 0 ? parse(args) : new int[]{10, 1_000, 10_000};
+        String[] modes = {GameExecutors.INLINE, GameExecutors.PLATFORM, GameExecutors.VIRTUAL};
+
+        PrintStream out = System.out;
+        out.printf("%-10s %8s %12s %14s %12s%n", "mode", "games", "time (ms)", "events/s", "peak threads");
+        for (int games : gameCounts) {
+            for (String mode : modes) {
+                if (mode.equals(GameExecutors.VIRTUAL) && !GameExecutors.supportsVirtualThreads()) {
+                    out.printf("%-10s %8d %12s%n", mode, games, "unsupported by this runtime");
+                    continue;
+                }
+                // the game engine logs every round, keep it out of the measurement
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                Result result;
+                try {
+                    result = run(mode, games);
+                } finally {
+                    System.setOut(out);
+                }
+                out.printf("%-10s %8d %12.1f %14.0f %12d%n", mode, games, result.millis, result.events / (result.millis / 1000.0), result.peakThreads);
+            }
+        }
+    }
+
+    private static Result run(String mode, int gameCount) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        Executor executor = GameExecutors.create(mode);
+
+        List<Game> games = new ArrayList<>(gameCount);
+        List<Player[]> players = new ArrayList<>(gameCount);
+        for (int i = 0; i < gameCount; i++) {
+            ConcurrentList<Player> list = new ConcurrentList<>();
+            Player[] gamePlayers = new Player[PLAYERS_PER_GAME];
+            for (int j = 0; j < PLAYERS_PER_GAME; j++) {
+                Player player = new Player(i * PLAYERS_PER_GAME + j, "bench" + i + "_" + j, null);
+                player.notifyGameStart();
+                list.add(player);
+                gamePlayers[j] = player;
+            }
+            games.add(new Game(i, list, false));
+            players.add(gamePlayers);
+        }
+
+        long start = System.nanoTime();
+        List<Runnable> events = new ArrayList<>(gameCount);
+        for (Game game : games) {
+            events.add(game::start);
+        }
+        dispatch(executor, events);
+
+        // every game moves to the next round within the event carrying its last guess
+        for (int round = 0; round < ROUNDS; round++) {
+            events = new ArrayList<>(gameCount * PLAYERS_PER_GAME);
+            for (int i = 0; i < gameCount; i++) {
+                Game game = games.get(i);
+                for (Player player : players.get(i)) {
+                    events.add(() -> game.setPlayerGuess(player, 50));
+                }
+            }
+            dispatch(executor, events);
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+        for (Game game : games) {
+            if (!game.isOver()) {
+                throw new IllegalStateException("Game " + game.getId() + " did not finish");
+            }
+        }
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+        long eventCount = (long) gameCount * (1 + ROUNDS * PLAYERS_PER_GAME);
+        return new Result(millis, eventCount, threads.getPeakThreadCount());
+    }
+
+    private static void dispatch(Executor executor, List<Runnable> events) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(events.size());
+        for (Runnable event : events) {
+            executor.execute(() -> {
+                try {
+                    event.run();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private static int[] parse(String[] args) {
+        int[] values = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = Integer.parseInt(args[i]);
+        }
+        return values;
+    }
+
+    private static class Result {
+        private final double millis;
+        private final long events;
+        private final int peakThreads;
+
+        Result(double millis, long events, int peakThreads) {
+            this.millis = millis;
+            this.events = events;
+            this.peakThreads = peakThreads;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package test.server;
+
+import main.server.MappedAccountStore;
+import main.server.UserRecord;
+import main.utils.Helper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedAccountStoreTest {
+
+    @Test
+    public void testPasswordsAreCheckedAgainstTheStoredDigest() throws IOException {
+        Path file = Files.createTempDirectory("users").resolve("users.dat");
+        MappedAccountStore store = MappedAccountStore.open(file);
+        assertNotNull(store.register("alice", Helper.hashPassword("secret")));
+        assertNull(store.register("alice", Helper.hashPassword("other")));
+
+        assertTrue(store.passwordMatches("alice", Helper.digestPassword("secret")));
+        assertFalse(store.passwordMatches("alice", Helper.digestPassword("Secret")));
+        assertFalse(store.passwordMatches("bob", Helper.digestPassword("secret")));
+        store.update("alice", 120, 3);
+        store.close();
+
+        store = MappedAccountStore.open(file);
+        UserRecord alice = store.find("alice");
+        assertEquals(120, alice.getScore());
+        assertEquals(3, alice.getGamesPlayed());
+        assertTrue(store.passwordMatches("alice", Helper.digestPassword("secret")));
+        store.close();
+    }
+}
@@ -0,0 +1,140 @@
+package test.server;
+
+import main.game.Player;
+import main.server.RankedMatchmaker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Players here have no connection, so the games they are matched into only mark them as in game.
+// Tolerances grow in real time, the score gaps are picked so that the expected pair is due well
+// before any other.
+public class RankedMatchmakerTest {
+    // score points of tolerance per second of waiting
+    private static final double RATIO = 200;
+    private static final long TIMEOUT_MILLIS = 10_000;
+    private static final AtomicInteger ids = new AtomicInteger(1_000_000);
+
+    private ScheduledExecutorService matcher;
+    private RankedMatchmaker queue;
+
+    @Before
+    public void setUp() {
+        matcher = Executors.newSingleThreadScheduledExecutor();
+        queue = new RankedMatchmaker(2, RATIO, matcher);
+    }
+
+    @After
+    public void tearDown() {
+        matcher.shutdownNow();
+    }
+
+    // a pair further apart than the tolerance waits until the tolerance has grown to their gap
+    @Test
+    public void testPairsOnceToleranceCoversTheGap() throws InterruptedException {
+        Player first = enqueue(1000);
+        Player second = enqueue(1300);
+        long enqueuedAt = second.getEnqueuedAt();
+
+        Thread.sleep(300);
+        assertTrue(queue.contains(first));
+        assertTrue(queue.contains(second));
+
+        awaitMatched(first, second);
+        // 300 points apart at 200 points per second
+        assertTrue(System.nanoTime() - enqueuedAt >= TimeUnit.MILLISECONDS.toNanos(1500));
+        assertEquals(0, queue.size());
+    }
+
+    // a newcomer close to a waiting player is paired with them before a player who came earlier but is further away
+    @Test
+    public void testClosestScoresArePairedFirst() throws InterruptedException {
+        Player waiting = enqueue(1000);
+        Player far = enqueue(1500);
+        Player close = enqueue(1040);
+
+        awaitMatched(waiting, close);
+        assertTrue(queue.contains(far));
+        assertFalse(far.isInGame());
+        assertEquals(1, queue.size());
+    }
+
+    // a player who left the queue is not waited for, the ones still queued pair among themselves
+    @Test
+    public void testRemovedPlayerIsNotPaired() throws InterruptedException {
+        Player leaving = enqueue(1000);
+        Player staying = enqueue(1200);
+        queue.remove(leaving);
+        Player newcomer = enqueue(1220);
+
+        awaitMatched(staying, newcomer);
+        assertFalse(queue.contains(leaving));
+        assertFalse(leaving.isInGame());
+        assertEquals(0, queue.size());
+    }
+
+    // players with the same score match at once
+    @Test
+    public void testEqualScoresPairImmediately() throws InterruptedException {
+        Player first = enqueue(700);
+        Player second = enqueue(700);
+
+        awaitMatched(first, second);
+        assertTrue(System.nanoTime() - second.getEnqueuedAt() < TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    // an older player whose partner left, surrounded by a large block of newer players, is re-matched
+    // without the matcher walking the whole block
+    @Test
+    public void testLargeBlockOfNewerPlayersDoesNotStallMatching() throws InterruptedException {
+        // 1 point of tolerance every 2 seconds, the block is 1000 points apart and never matches here
+        queue = new RankedMatchmaker(2, 0.5, matcher);
+        Player partner = enqueue(1);
+        Player waiting = enqueue(0);
+        for (int i = 1; i <= 20_000; i++) {
+            enqueue(i % 2 == 0 ? i * 1000 : -i * 1000);
+        }
+        // due after 2 seconds, finds its partner gone and looks for older players across the block
+        partner.setAbsent(true);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (queue.contains(partner) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(queue.contains(partner));
+
+        long start = System.nanoTime();
+        Player newcomer = enqueue(0);
+        awaitMatched(waiting, newcomer);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals(20_000, queue.size());
+    }
+
+    private Player enqueue(int score) {
+        int id = ids.getAndIncrement();
+        Player player = new Player(id, "ranked" + id, score, null);
+        player.startWaitTimer();
+        queue.add(player);
+        return player;
+    }
+
+    // waits for both players to leave the queue and checks they were put in a game
+    private void awaitMatched(Player a, Player b) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while ((queue.contains(a) || queue.contains(b)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(queue.contains(a));
+        assertFalse(queue.contains(b));
+        assertTrue(a.isInGame());
+        assertTrue(b.isInGame());
+    }
+}
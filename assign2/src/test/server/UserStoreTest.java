@@ -0,0 +1,84 @@
+package test.server;
+
+import main.server.UserRecord;
+import main.server.UserStore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class UserStoreTest {
+
+    @Test
+    public void testRejectsUsernamesWithSeparators() throws IOException {
+        Path directory = Files.createTempDirectory("users");
+        UserStore store = load(directory);
+        assertNull(store.register("ev,il", "hash"));
+        assertNull(store.register("new\nline", "hash"));
+        assertNull(store.register("", "hash"));
+        assertNotNull(store.register("alice", "hash"));
+        store.close();
+
+        store = load(directory);
+        assertNotNull(store.find("alice"));
+        assertNull(store.find("ev"));
+        store.close();
+    }
+
+    // a whole record that can not be applied is skipped, the records after it still replay
+    @Test
+    public void testReplayKeepsRecordsAfterAMalformedOne() throws IOException {
+        Path directory = Files.createTempDirectory("users");
+        String log = record("R,alice,hash")
+                + record("R,ev,il,hash")
+                + record("R,bob,hash")
+                + record("U,alice,500,1");
+        Files.write(directory.resolve("users.log"), log.getBytes(StandardCharsets.UTF_8));
+
+        UserStore store = load(directory);
+        assertNotNull(store.find("bob"));
+        assertEquals(500, store.find("alice").getScore());
+        assertNull(store.find("ev"));
+        store.close();
+
+        // the snapshot written on close parses back to the same accounts
+        for (String line : Files.readAllLines(directory.resolve("users.csv"), StandardCharsets.UTF_8).subList(1, 3)) {
+            assertNotNull(UserRecord.fromCsvLine(line));
+        }
+        store = load(directory);
+        assertNotNull(store.find("bob"));
+        assertEquals(500, store.find("alice").getScore());
+        store.close();
+    }
+
+    // a torn last record is cut off, the complete ones before it are kept
+    @Test
+    public void testReplayTruncatesTornTail() throws IOException {
+        Path directory = Files.createTempDirectory("users");
+        String complete = record("R,alice,hash");
+        Files.write(directory.resolve("users.log"), (complete + "R,bob,ha").getBytes(StandardCharsets.UTF_8));
+
+        UserStore store = load(directory);
+        assertNotNull(store.find("alice"));
+        assertNull(store.find("bob"));
+        assertEquals(complete.length(), Files.size(directory.resolve("users.log")));
+        store.close();
+    }
+
+    private static UserStore load(Path directory) throws IOException {
+        return UserStore.load(directory.resolve("users.csv"), directory.resolve("users.log"), 256, 60_000, 1024 * 1024);
+    }
+
+    private static String record(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return content + "," + String.format("%08x", crc.getValue()) + "\n";
+    }
+}
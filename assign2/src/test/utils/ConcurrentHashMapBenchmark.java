@@ -0,0 +1,142 @@
+package test.utils;
+
+import main.utils.ConcurrentHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Throughput of a read-mostly workload (90% get, 5% put, 5% remove over 10k keys) on the striped
+// main.utils.ConcurrentHashMap, the single-lock HashMap wrapper it replaced, and java.util.concurrent's.
+//
+// Run with: java -cp <classes> test.utils.ConcurrentHashMapBenchmark [operations per thread]
+public class ConcurrentHashMapBenchmark {
+    private static final int KEYS = 10_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int[] threadCounts = {1, 2, 4, 8, 16};
+
+        System.out.printf("%-24s %8s %14s%n", "map", "threads", "ops/ms");
+        for (int threads : threadCounts) {
+            report("single lock (previous)", threads, operations, new SingleLockMap());
+            report("striped", threads, operations, new StripedMap());
+            report("java.util.concurrent", threads, operations, new JdkMap());
+        }
+    }
+
+    private static void report(String name, int threads, int operations, BenchmarkMap map) throws InterruptedException {
+        for (int key = 0; key < KEYS; key++) {
+            map.put(key, key);
+        }
+        run(threads, operations / 4, map);
+        double millis = run(threads, operations, map);
+        System.out.printf("%-24s %8d %14.0f%n", name, threads, threads * (double) operations / millis);
+    }
+
+    private static double run(int threads, int operations, BenchmarkMap map) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int op = 0; op < operations; op++) {
+                    Integer key = random.nextInt(KEYS);
+                    int dice = random.nextInt(100);
+                    if (dice < 90) {
+                        map.get(key);
+                    } else if (dice < 95) {
+                        map.put(key, op);
+                    } else {
+                        map.remove(key);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return (System.nanoTime() - begin) / 1_000_000.0;
+    }
+
+    private interface BenchmarkMap {
+        Integer get(Integer key);
+
+        void put(Integer key, Integer value);
+
+        void remove(Integer key);
+    }
+
+    private static class StripedMap implements BenchmarkMap {
+        private final ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+
+        public Integer get(Integer key) {
+            return map.get(key);
+        }
+
+        public void put(Integer key, Integer value) {
+            map.put(key, value);
+        }
+
+        public void remove(Integer key) {
+            map.remove(key);
+        }
+    }
+
+    private static class JdkMap implements BenchmarkMap {
+        private final java.util.concurrent.ConcurrentHashMap<Integer, Integer> map = new java.util.concurrent.ConcurrentHashMap<>();
+
+        public Integer get(Integer key) {
+            return map.get(key);
+        }
+
+        public void put(Integer key, Integer value) {
+            map.put(key, value);
+        }
+
+        public void remove(Integer key) {
+            map.remove(key);
+        }
+    }
+
+    // the previous implementation: a HashMap behind one ReentrantLock
+    private static class SingleLockMap implements BenchmarkMap {
+        private final Map<Integer, Integer> map = new HashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        public Integer get(Integer key) {
+            lock.lock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void put(Integer key, Integer value) {
+            lock.lock();
+            try {
+                map.put(key, value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void remove(Integer key) {
+            lock.lock();
+            try {
+                map.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package test.utils;
+
+import main.utils.ConcurrentHashMap;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static test.utils.ConcurrentRunner.runConcurrently;
+
+public class ConcurrentHashMapTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void testBasicOperations() {
+        ConcurrentHashMap<String, Integer> map = new ConcurrentHashMap<>();
+        assertTrue(map.isEmpty());
+        map.put("a", 1);
+        assertEquals(Integer.valueOf(1), map.putIfAbsent("a", 2));
+        assertNull(map.putIfAbsent("b", 2));
+        assertEquals(Integer.valueOf(3), map.getOrDefault("c", 3));
+        assertFalse(map.remove("a", 5));
+        assertTrue(map.remove("a", 1));
+        map.remove("b");
+        assertNull(map.get("b"));
+        assertEquals(0, map.size());
+        assertEquals(Integer.valueOf(7), map.compute("d", (key, value) -> value == null ? 7 : value + 1));
+        assertEquals(Integer.valueOf(8), map.computeIfPresent("d", (key, value) -> value + 1));
+        assertNull(map.computeIfPresent("d", (key, value) -> null));
+        assertFalse(map.containsKey("d"));
+    }
+
+    @Test
+    public void testGrowthKeepsEveryEntry() {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            map.put(i, i * 2);
+        }
+        assertEquals(100_000, map.size());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(Integer.valueOf(i * 2), map.get(i));
+        }
+        Set<Integer> keys = new HashSet<>(map.keys());
+        assertEquals(100_000, keys.size());
+        assertTrue(map.containsValue(199_998));
+    }
+
+    @Test
+    public void testPutIfAbsentHasOneWinnerPerKey() throws InterruptedException {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        AtomicInteger winners = new AtomicInteger();
+        runConcurrently(THREADS, thread -> {
+            for (int key = 0; key < 10_000; key++) {
+                if (map.putIfAbsent(key, thread) == null) {
+                    winners.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(10_000, winners.get());
+        assertEquals(10_000, map.size());
+    }
+
+    @Test
+    public void testComputeIfAbsentRunsOncePerKey() throws InterruptedException {
+        ConcurrentHashMap<Integer, Object> map = new ConcurrentHashMap<>();
+        AtomicInteger calls = new AtomicInteger();
+        runConcurrently(THREADS, thread -> {
+            for (int key = 0; key < 10_000; key++) {
+                map.computeIfAbsent(key, k -> {
+                    calls.incrementAndGet();
+                    return new Object();
+                });
+            }
+        });
+        assertEquals(10_000, calls.get());
+    }
+
+    @Test
+    public void testComputeIsAtomic() throws InterruptedException {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                map.compute(i % 64, (key, value) -> value == null ? 1 : value + 1);
+            }
+        });
+        int total = 0;
+        for (int key = 0; key < 64; key++) {
+            total += map.get(key);
+        }
+        assertEquals(THREADS * 20_000, total);
+    }
+
+    // writers insert and remove their own keys while readers check that a key is only ever seen with its own value
+    @Test
+    public void testReadersSeeConsistentValuesDuringWrites() throws InterruptedException {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        runConcurrently(THREADS, thread -> {
+            if (thread % 2 == 0) {
+                for (int round = 0; round < 20; round++) {
+                    for (int i = 0; i < 5_000; i++) {
+                        int key = thread * 1_000_000 + i;
+                        map.put(key, -key);
+                    }
+                    for (int i = 0; i < 5_000; i++) {
+                        map.remove(thread * 1_000_000 + i);
+                    }
+                }
+            } else {
+                for (int round = 0; round < 20; round++) {
+                    for (int i = 0; i < 5_000; i++) {
+                        int key = (thread - 1) * 1_000_000 + i;
+                        Integer value = map.get(key);
+                        if (value != null && value != -key) {
+                            failure.set("key " + key + " mapped to " + value);
+                        }
+                    }
+                    map.forEach((key, value) -> {
+                        if (value != -key) {
+                            failure.set("iteration saw key " + key + " mapped to " + value);
+                        }
+                    });
+                }
+            }
+        });
+        assertNull(failure.get());
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package test.utils;
+
+import main.utils.ConcurrentLinkedList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static test.utils.ConcurrentRunner.runConcurrently;
+
+public class ConcurrentLinkedListTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void testInsertionOrderAndRemoval() {
+        ConcurrentLinkedList<Integer> list = new ConcurrentLinkedList<>();
+        assertTrue(list.isEmpty());
+        assertNull(list.poll());
+        for (int i = 0; i < 6; i++) {
+            list.add(i);
+        }
+        assertTrue(list.remove(3));
+        assertFalse(list.remove(3));
+        assertTrue(list.remove(5));
+        assertFalse(list.contains(5));
+        assertEquals(Integer.valueOf(0), list.poll());
+        list.add(6);
+
+        List<Integer> seen = new ArrayList<>();
+        for (Integer value : list) {
+            seen.add(value);
+        }
+        assertEquals(List.of(1, 2, 4, 6), seen);
+
+        Iterator<Integer> iterator = list.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(3, list.size());
+        assertFalse(list.contains(1));
+    }
+
+    // each thread adds and removes its own elements while iterating the whole list
+    @Test
+    public void testConcurrentAddRemoveAndIteration() throws InterruptedException {
+        ConcurrentLinkedList<Integer> list = new ConcurrentLinkedList<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        runConcurrently(THREADS, thread -> {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 500; i++) {
+                    list.add(thread * 1_000_000 + i);
+                }
+                for (int i = 0; i < 500; i++) {
+                    int value = thread * 1_000_000 + i;
+                    if (!list.contains(value)) {
+                        failure.set("lost " + value);
+                    }
+                }
+                int last = -1;
+                for (Integer value : list) {
+                    if (value / 1_000_000 == thread) {
+                        // this thread's elements are still in the order it added them
+                        if (value <= last) {
+                            failure.set(value + " after " + last);
+                        }
+                        last = value;
+                    }
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (!list.remove(thread * 1_000_000 + i)) {
+                        failure.set("could not remove " + (thread * 1_000_000 + i));
+                    }
+                }
+            }
+        });
+        assertNull(failure.get());
+        assertTrue(list.isEmpty());
+        assertEquals(0, list.size());
+    }
+
+    // every element added is polled exactly once while producers keep appending
+    @Test
+    public void testConcurrentPollTakesEachElementOnce() throws InterruptedException {
+        ConcurrentLinkedList<Integer> list = new ConcurrentLinkedList<>();
+        int perProducer = 20_000;
+        int producers = THREADS / 2;
+        AtomicIntegerArray taken = new AtomicIntegerArray(producers * perProducer);
+        AtomicInteger polled = new AtomicInteger();
+        runConcurrently(THREADS, thread -> {
+            if (thread < producers) {
+                for (int i = 0; i < perProducer; i++) {
+                    list.add(thread * perProducer + i);
+                }
+            } else {
+                while (polled.get() < producers * perProducer) {
+                    Integer value = list.poll();
+                    if (value != null) {
+                        taken.incrementAndGet(value);
+                        polled.incrementAndGet();
+                    }
+                }
+            }
+        });
+        for (int i = 0; i < taken.length(); i++) {
+            assertEquals(1, taken.get(i));
+        }
+        assertTrue(list.isEmpty());
+        assertEquals(0, list.size());
+    }
+}
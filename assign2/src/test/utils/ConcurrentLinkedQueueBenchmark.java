@@ -0,0 +1,133 @@
+package test.utils;
+
+import main.utils.ConcurrentLinkedQueue;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hand-off throughput with P producers and C consumers on the lock-free main.utils.ConcurrentLinkedQueue,
+// the single lock and condition queue it replaced, and java.util.concurrent's ConcurrentLinkedQueue.
+// Consumers poll without blocking, as the reactors do with their task queues.
+//
+// Run with: java -cp <classes> test.utils.ConcurrentLinkedQueueBenchmark [elements per producer]
+public class ConcurrentLinkedQueueBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int[][] shapes = {{1, 1}, {2, 1}, {4, 1}, {2, 2}, {4, 4}, {8, 8}};
+
+        System.out.printf("%-24s %10s %10s %14s%n", "queue", "producers", "consumers", "ops/ms");
+        for (int[] shape : shapes) {
+            report("single lock (previous)", shape[0], shape[1], elements, new SingleLockQueue());
+            report("lock-free", shape[0], shape[1], elements, new LockFreeQueue());
+            report("java.util.concurrent", shape[0], shape[1], elements, new JdkQueue());
+        }
+    }
+
+    private static void report(String name, int producers, int consumers, int elements, BenchmarkQueue queue) throws InterruptedException {
+        run(producers, consumers, elements / 4, queue);
+        double millis = run(producers, consumers, elements, queue);
+        System.out.printf("%-24s %10d %10d %14.0f%n", name, producers, consumers, producers * (double) elements / millis);
+    }
+
+    private static double run(int producers, int consumers, int elements, BenchmarkQueue queue) throws InterruptedException {
+        long total = (long) producers * elements;
+        AtomicLong consumed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+        Integer element = 42;
+        for (int i = 0; i < producers; i++) {
+            new Thread(() -> {
+                awaitQuietly(start);
+                for (int n = 0; n < elements; n++) {
+                    queue.offer(element);
+                }
+                done.countDown();
+            }).start();
+        }
+        for (int i = 0; i < consumers; i++) {
+            new Thread(() -> {
+                awaitQuietly(start);
+                while (consumed.get() < total) {
+                    if (queue.poll() != null) {
+                        consumed.incrementAndGet();
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return (System.nanoTime() - begin) / 1_000_000.0;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface BenchmarkQueue {
+        void offer(Integer element);
+
+        Integer poll();
+    }
+
+    private static class LockFreeQueue implements BenchmarkQueue {
+        private final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+
+        public void offer(Integer element) {
+            queue.offer(element);
+        }
+
+        public Integer poll() {
+            return queue.poll();
+        }
+    }
+
+    private static class JdkQueue implements BenchmarkQueue {
+        private final java.util.concurrent.ConcurrentLinkedQueue<Integer> queue = new java.util.concurrent.ConcurrentLinkedQueue<>();
+
+        public void offer(Integer element) {
+            queue.offer(element);
+        }
+
+        public Integer poll() {
+            return queue.poll();
+        }
+    }
+
+    // the previous implementation: a linked list behind one ReentrantLock, signalling a condition on every offer
+    private static class SingleLockQueue implements BenchmarkQueue {
+        private final Queue<Integer> queue = new LinkedList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+
+        public void offer(Integer element) {
+            lock.lock();
+            try {
+                queue.add(element);
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Integer poll() {
+            lock.lock();
+            try {
+                return queue.poll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
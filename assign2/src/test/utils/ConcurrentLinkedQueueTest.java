@@ -0,0 +1,167 @@
+package test.utils;
+
+import main.utils.ConcurrentLinkedQueue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLinkedQueueTest {
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 4;
+    private static final int PER_PRODUCER = 50_000;
+
+    @Test
+    public void testFifoAndDrain() {
+        ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        assertEquals(10, queue.size());
+        assertEquals(Integer.valueOf(0), queue.poll());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, queue.drainTo(drained, 4));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertEquals(5, queue.drainTo(drained));
+        assertEquals(Integer.valueOf(9), drained.get(drained.size() - 1));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testTimedPollWaitsOnlyWhenEmpty() throws InterruptedException {
+        ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ignored) {
+                // offered right away then
+            }
+            queue.offer("late");
+        }).start();
+        assertEquals("late", queue.poll(10, TimeUnit.SECONDS));
+    }
+
+    // every element is taken exactly once, and no consumer sees a producer's elements out of order
+    @Test
+    public void testConcurrentProducersAndConsumers() throws InterruptedException {
+        ConcurrentLinkedQueue<Long> queue = new ConcurrentLinkedQueue<>();
+        AtomicIntegerArray seen = new AtomicIntegerArray(PRODUCERS * PER_PRODUCER);
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicReference<String> failure = new AtomicReference<>();
+        int total = PRODUCERS * PER_PRODUCER;
+
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < PRODUCERS; p++) {
+            long producer = p;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    queue.offer(producer << 32 | i);
+                }
+            }));
+        }
+        for (int c = 0; c < CONSUMERS; c++) {
+            boolean blocking = c % 2 == 0;
+            threads.add(new Thread(() -> {
+                await(start);
+                int[] last = new int[PRODUCERS];
+                Arrays.fill(last, -1);
+                List<Long> batch = new ArrayList<>();
+                while (consumed.get() < total) {
+                    batch.clear();
+                    if (blocking) {
+                        try {
+                            Long value = queue.poll(10, TimeUnit.MILLISECONDS);
+                            if (value != null) {
+                                batch.add(value);
+                            }
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    } else {
+                        queue.drainTo(batch, 64);
+                    }
+                    for (long value : batch) {
+                        int producer = (int) (value >>> 32);
+                        int sequence = (int) value;
+                        if (sequence <= last[producer]) {
+                            failure.set("producer " + producer + " element " + sequence + " after " + last[producer]);
+                        }
+                        last[producer] = sequence;
+                        if (seen.getAndIncrement(producer * PER_PRODUCER + sequence) != 0) {
+                            failure.set("producer " + producer + " element " + sequence + " taken twice");
+                        }
+                        consumed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(total, consumed.get());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    // parked consumers must all be woken as elements arrive, none may sleep through a signal
+    @Test
+    public void testTakeWakesEveryWaiter() throws InterruptedException {
+        ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        int waiters = 8;
+        CountDownLatch done = new CountDownLatch(waiters);
+        for (int i = 0; i < waiters; i++) {
+            new Thread(() -> {
+                try {
+                    for (int j = 0; j < 1_000; j++) {
+                        queue.take();
+                    }
+                    done.countDown();
+                } catch (InterruptedException ignored) {
+                    // the test fails on the latch
+                }
+            }).start();
+        }
+        for (int i = 0; i < waiters * 1_000; i++) {
+            queue.offer(i);
+            if (i % 100 == 0) {
+                Thread.yield();
+            }
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertTrue(queue.isEmpty());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package test.utils;
+
+import main.utils.ConcurrentList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentListTest {
+
+    @Test
+    public void testBatchWrites() {
+        ConcurrentList<Integer> list = new ConcurrentList<>();
+        list.addAll(List.of(1, 2, 3, 4, 5, 6));
+        assertEquals(6, list.size());
+        assertTrue(list.removeIf(value -> value % 2 == 0));
+        assertFalse(list.removeIf(value -> value > 10));
+        assertEquals(List.of(1, 3, 5), list.getAll());
+        list.addAll(List.of());
+        assertEquals(3, list.size());
+    }
+
+    @Test
+    public void testRemoveByIndexAndElement() {
+        ConcurrentList<String> list = new ConcurrentList<>();
+        list.addAll(List.of("a", "b", "c", "b"));
+        String removed = list.remove(1);
+        assertEquals("b", removed);
+        list.remove("b");
+        assertEquals(List.of("a", "c"), list.getAll());
+        assertFalse(list.contains("b"));
+        try {
+            list.remove(5);
+            throw new AssertionError("expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // the list is left as it was
+        }
+        assertEquals(2, list.size());
+    }
+
+    // iterators, forEach and copies see the list as it was when they started
+    @Test
+    public void testSnapshotsIgnoreLaterWrites() {
+        ConcurrentList<Integer> list = new ConcurrentList<>();
+        list.addAll(List.of(1, 2, 3));
+        List<Integer> copy = list.subList(0, 2);
+        List<Integer> all = list.getAll();
+
+        Iterator<Integer> iterator = list.iterator();
+        List<Integer> iterated = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Integer value = iterator.next();
+            iterated.add(value);
+            list.remove(value);
+        }
+        assertEquals(List.of(1, 2, 3), iterated);
+        assertEquals(0, list.size());
+
+        list.add(4);
+        List<Integer> visited = new ArrayList<>();
+        list.forEach(value -> {
+            visited.add(value);
+            list.add(value + 1);
+        });
+        assertEquals(List.of(4), visited);
+        assertEquals(List.of(4, 5), list.getAll());
+
+        assertEquals(List.of(1, 2), copy);
+        assertEquals(List.of(1, 2, 3), all);
+    }
+}
@@ -0,0 +1,43 @@
+package test.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs the same worker on several threads released at once, for the concurrent collection tests.
+// Rethrows whatever a worker threw as an AssertionError once every thread is done.
+public class ConcurrentRunner {
+    public interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    private ConcurrentRunner() {
+    }
+
+    public static void runConcurrently(int threadCount, Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        for (int i = 0; i < threadCount; i++) {
+            int thread = i;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package test.utils;
+
+import main.utils.FrameDecoder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class FrameDecoderTest {
+    private static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    // a frame cut anywhere, including inside a multi-byte character, comes out whole once its terminator arrives
+    @Test
+    public void testFrameSplitAcrossReads() throws IOException {
+        byte[] frame = "LOGIN\nbob\nçã".getBytes(StandardCharsets.UTF_8);
+        ChunkedChannel channel = new ChunkedChannel();
+        channel.add(frame, 0, 3);
+        channel.add(frame, 3, frame.length - 4);
+        channel.add(frame, frame.length - 1, 1);
+        channel.add("\t");
+
+        FrameDecoder decoder = new FrameDecoder();
+        for (int i = 0; i < 3; i++) {
+            decoder.read(channel);
+            assertNull(decoder.nextFrame());
+        }
+        decoder.read(channel);
+        assertEquals("LOGIN\nbob\nçã", decoder.nextFrame());
+        assertNull(decoder.nextFrame());
+    }
+
+    // one read holding several frames and the start of another hands them out one at a time
+    @Test
+    public void testSeveralFramesInOneRead() throws IOException {
+        ChunkedChannel channel = new ChunkedChannel();
+        channel.add("PING\tQUEUE\nnormal\t\tPARTI");
+        channel.add("AL\t");
+
+        FrameDecoder decoder = new FrameDecoder();
+        decoder.read(channel);
+        assertEquals("PING", decoder.nextFrame());
+        assertEquals("QUEUE\nnormal", decoder.nextFrame());
+        assertEquals("", decoder.nextFrame());
+        assertNull(decoder.nextFrame());
+        decoder.read(channel);
+        assertEquals("PARTIAL", decoder.nextFrame());
+        assertNull(decoder.nextFrame());
+        assertEquals(-1, decoder.read(channel));
+    }
+
+    // the buffer grows up to the largest frame, and a frame that still has no terminator past it is refused
+    @Test
+    public void testOversizedFrame() throws IOException {
+        ChunkedChannel channel = new ChunkedChannel();
+        channel.add("a".repeat(MAX_FRAME_SIZE - 1) + "\t");
+        FrameDecoder decoder = new FrameDecoder();
+        assertEquals(MAX_FRAME_SIZE - 1, readFrames(decoder, channel).get(0).length());
+
+        channel.add("b".repeat(MAX_FRAME_SIZE) + "\t");
+        try {
+            readFrames(decoder, channel);
+            fail("oversized frame was accepted");
+        } catch (IOException e) {
+            assertEquals("Frame exceeds " + MAX_FRAME_SIZE + " bytes", e.getMessage());
+        }
+    }
+
+    // reads until the channel runs dry, collecting every frame
+    private static List<String> readFrames(FrameDecoder decoder, ReadableByteChannel channel) throws IOException {
+        List<String> frames = new ArrayList<>();
+        while (decoder.read(channel) > 0) {
+            String frame;
+            while ((frame = decoder.nextFrame()) != null) {
+                frames.add(frame);
+            }
+        }
+        return frames;
+    }
+
+    // hands out its chunks as separate reads, cut further only when the decoder's buffer is smaller
+    private static class ChunkedChannel implements ReadableByteChannel {
+        private final Deque<ByteBuffer> chunks = new ArrayDeque<>();
+
+        void add(String chunk) {
+            byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+            add(bytes, 0, bytes.length);
+        }
+
+        void add(byte[] bytes, int offset, int length) {
+            chunks.add(ByteBuffer.wrap(bytes, offset, length));
+        }
+
+        @Override
+        public int read(ByteBuffer destination) {
+            ByteBuffer chunk = chunks.peek();
+            if (chunk == null) {
+                return -1;
+            }
+            int count = Math.min(chunk.remaining(), destination.remaining());
+            ByteBuffer slice = chunk.slice();
+            slice.limit(count);
+            destination.put(slice);
+            chunk.position(chunk.position() + count);
+            if (!chunk.hasRemaining()) {
+                chunks.poll();
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
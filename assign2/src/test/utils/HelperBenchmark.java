@@ -0,0 +1,69 @@
+package test.utils;
+
+import main.utils.Helper;
+
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
+
+// Compares the password hashing path (hash, verify, session token) against the implementation it
+// replaced: a MessageDigest lookup per call, String.format per hex byte and hex String comparison.
+// Reports time and heap allocation per operation, measured on this thread after a warm-up pass.
+//
+// Run with: java -cp <classes> test.utils.HelperBenchmark [iterations]
+public class HelperBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String stored = Helper.hashPassword(PASSWORD);
+
+        System.out.printf("%-22s %12s %12s%n", "operation", "ns/op", "bytes/op");
+        run("hash (legacy)", iterations, () -> legacyHashPassword(PASSWORD));
+        run("hash", iterations, () -> Helper.hashPassword(PASSWORD));
+        run("verify (legacy)", iterations, () -> legacyVerifyPassword(PASSWORD, stored));
+        run("verify", iterations, () -> Helper.verifyPassword(PASSWORD, stored));
+        run("session token (legacy)", iterations, () -> legacyHashPassword(String.valueOf(System.currentTimeMillis())));
+        run("session token", iterations, Helper::generateSessionToken);
+    }
+
+    private static void run(String name, int iterations, Supplier<Object> operation) {
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.get();
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.get();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("%-22s %12.1f %12.1f%n", name, (double) nanos / iterations, (double) allocated / iterations);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static String legacyHashPassword(String password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hashedBytes = md.digest(password.getBytes());
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hashedBytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean legacyVerifyPassword(String password, String hashedPassword) {
+        String hashedInput = legacyHashPassword(password);
+        return hashedInput.equals(hashedPassword);
+    }
+}
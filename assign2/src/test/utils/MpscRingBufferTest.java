@@ -0,0 +1,125 @@
+package test.utils;
+
+import main.utils.MpscRingBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MpscRingBufferTest {
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 100_000;
+
+    @Test
+    public void testClaimPublishAndDrain() {
+        MpscRingBuffer<Slot> ring = new MpscRingBuffer<>(4, Slot::new);
+        assertTrue(ring.isEmpty());
+        // only the first event after an empty ring asks for a wake up
+        assertTrue(publish(ring, 1));
+        assertFalse(publish(ring, 2));
+        assertFalse(publish(ring, 3));
+        assertFalse(publish(ring, 4));
+        // full, gives up after the timeout or at once
+        assertEquals(-1, ring.claim(1, TimeUnit.MILLISECONDS));
+        assertEquals(-1, ring.tryClaim());
+
+        List<Long> drained = new ArrayList<>();
+        assertEquals(4, ring.drain(slot -> drained.add(slot.value)));
+        assertEquals(List.of(1L, 2L, 3L, 4L), drained);
+        assertTrue(ring.isEmpty());
+        assertTrue(publish(ring, 5));
+        assertEquals(5, ring.tryClaim());
+    }
+
+    // a consumer that sleeps whenever it finds the ring empty must never miss a wake up
+    @Test
+    public void testProducersWakeSleepingConsumer() throws InterruptedException {
+        MpscRingBuffer<Slot> ring = new MpscRingBuffer<>(1024, Slot::new);
+        Object monitor = new Object();
+        AtomicInteger wakeups = new AtomicInteger();
+        AtomicReference<String> failure = new AtomicReference<>();
+        long[] last = new long[PRODUCERS];
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= PER_PRODUCER; i++) {
+                    long sequence = ring.claim(10, TimeUnit.SECONDS);
+                    if (sequence < 0) {
+                        failure.set("claim timed out");
+                        return;
+                    }
+                    ring.get(sequence).value = producer << 32 | i;
+                    if (ring.publish(sequence)) {
+                        synchronized (monitor) {
+                            wakeups.incrementAndGet();
+                            monitor.notify();
+                        }
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        long consumed = 0;
+        long total = (long) PRODUCERS * PER_PRODUCER;
+        while (consumed < total) {
+            consumed += ring.drain(slot -> {
+                int producer = (int) (slot.value >>> 32);
+                long sequence = slot.value & 0xFFFFFFFFL;
+                if (sequence != last[producer] + 1) {
+                    failure.set("producer " + producer + " event " + sequence + " after " + last[producer]);
+                }
+                last[producer] = sequence;
+            });
+            synchronized (monitor) {
+                if (ring.isEmpty() && consumed < total) {
+                    // a missed wake up would hang here, the timeout turns it into a failure
+                    long before = wakeups.get();
+                    monitor.wait(5_000);
+                    if (wakeups.get() == before && ring.isEmpty()) {
+                        failure.set("not woken with " + (total - consumed) + " events to go");
+                        break;
+                    }
+                }
+            }
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(total, consumed);
+        for (long value : last) {
+            assertEquals(PER_PRODUCER, value);
+        }
+    }
+
+    private static boolean publish(MpscRingBuffer<Slot> ring, long value) {
+        long sequence = ring.claim(0, TimeUnit.MILLISECONDS);
+        ring.get(sequence).value = value;
+        return ring.publish(sequence);
+    }
+
+    private static class Slot {
+        private long value;
+    }
+}